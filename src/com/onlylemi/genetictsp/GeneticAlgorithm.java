@@ -5,17 +5,32 @@ import com.zalandemeter.Item;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
 
 /**
  * TSP problémát megvalósító genetikus algoritmus.
+ * A példányok függetlenek egymástól, saját véletlenszám-generátorral és pufferekkel, így több példány
+ * párhuzamosan futhat különböző szálakon. Egy példányt egyszerre csak egy szál használhat.
+ * {@link #setParallelism(int)} esetén egy példány az egyedek úthosszát és a független szülőpárok keresztezését
+ * egy saját fork-join szálkészleten párhuzamosan számolja. A véletlenszámokat ilyenkor is a hívó szál húzza
+ * ugyanabban a sorrendben, így adott kezdőértékkel az eredmény a párhuzamosságtól független.
+ * {@link #setIslands(int)} esetén szigetmodellel fut: szigetenként egy-egy független populáció fejlődik a
+ * szálkészleten, és {@link #setMigrationInterval(int)} generációnként a szigetek legjobb egyedei körben
+ * átvándorolnak a következő szigetre, a legrosszabb egyedek helyére.
+ * A szálkészletet a {@link #close()} állítja le, ezért párhuzamos futtatásnál a példányt try-with-resources
+ * blokkban érdemes használni.
  * @see <a href="https://github.com/onlylemi/GeneticTSP">GitHUB kód</a>
  * @author onlylemi
  */
-public class GeneticAlgorithm {
+public class GeneticAlgorithm implements AutoCloseable {
 
     private static final float DEFAULT_CROSSOVER_PROBABILITY = 0.9f;
     private static final float DEFAULT_MUTATION_PROBABILITY = 0.01f;
     private static final int DEFAULT_POPULATION_SIZE = 30;
+    private static final int DEFAULT_MIGRATION_INTERVAL = 50;
+    private static final int DEFAULT_MIGRATION_SIZE = 2;
 
     private float crossoverProbability = DEFAULT_CROSSOVER_PROBABILITY;
     private float mutationProbability = DEFAULT_MUTATION_PROBABILITY;
@@ -40,17 +55,92 @@ public class GeneticAlgorithm {
 
     private boolean isAutoNextGeneration = false;
 
-    public static GeneticAlgorithm getInstance() {
-        return GeneticAlgorithmHolder.instance;
+    private final Random random;
+
+    private int parallelism = 1;
+    private ForkJoinPool pool;
+
+    private int islands = 1;
+    private int migrationInterval = DEFAULT_MIGRATION_INTERVAL;
+    private int migrationSize = DEFAULT_MIGRATION_SIZE;
+
+    public GeneticAlgorithm() {
+        random = new Random();
+    }
+
+    public GeneticAlgorithm(long seed) {
+        random = new Random(seed);
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+        if (pool != null) {
+            pool.shutdown();
+        }
+        pool = this.parallelism > 1 ? new ForkJoinPool(this.parallelism) : null;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Leállítja a példány szálkészletét, a további futtatások egy szálon történnek.
+     */
+    @Override
+    public void close() {
+        setParallelism(1);
     }
 
-    private static class GeneticAlgorithmHolder {
-        private static GeneticAlgorithm instance = new GeneticAlgorithm();
+    private void forEach(int count, IntConsumer action) {
+        if (pool == null || count < 2) {
+            for (int i = 0; i < count; i++) {
+                action.accept(i);
+            }
+        } else {
+            pool.invoke(new Range(0, count, Math.max(1, count / parallelism), action));
+        }
+    }
+
+    /**
+     * A [from, to) indextartományt felezve szétosztó feladat. A cutoff-nál nem hosszabb tartományokat
+     * a feladat egy szálon, sorban dolgozza fel, így szálanként nagyjából egy feladat jön létre.
+     */
+    private static final class Range extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int cutoff;
+        private final IntConsumer action;
+
+        Range(int from, int to, int cutoff, IntConsumer action) {
+            this.from = from;
+            this.to = to;
+            this.cutoff = cutoff;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= cutoff) {
+                for (int i = from; i < to; i++) {
+                    action.accept(i);
+                }
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Range(from, mid, cutoff, action), new Range(mid, to, cutoff, action));
+            }
+        }
     }
 
     public int[] tsp(float[][] matrix) {
         this.dist = matrix;
         pointNum = matrix.length;
+        if (isAutoNextGeneration && islands > 1) {
+            isAutoNextGeneration = false;
+            return islandTsp();
+        }
         init();
 
         if (isAutoNextGeneration) {
@@ -63,6 +153,98 @@ public class GeneticAlgorithm {
         return getBestIndivial();
     }
 
+    /**
+     * Szigetmodellel futtatja az algoritmust. A szigetek kezdőértékét a példány véletlenszám-generátora adja,
+     * a szigetek a vándorlások között a szálkészleten párhuzamosan, saját véletlenszám-generátorral fejlődnek,
+     * a vándorlás pedig a hívó szálon, rögzített sorrendben történik.
+     */
+    private int[] islandTsp() {
+        GeneticAlgorithm[] subs = new GeneticAlgorithm[islands];
+        for (int i = 0; i < islands; i++) {
+            subs[i] = new GeneticAlgorithm(random.nextLong());
+            subs[i].crossoverProbability = crossoverProbability;
+            subs[i].mutationProbability = mutationProbability;
+            subs[i].populationSize = populationSize;
+            subs[i].dist = dist;
+            subs[i].pointNum = pointNum;
+        }
+        forEach(islands, i -> subs[i].init());
+
+        int generation = 0;
+        while (generation < maxGeneration) {
+            int steps = Math.min(migrationInterval, maxGeneration - generation);
+            forEach(islands, i -> {
+                for (int j = 0; j < steps; j++) {
+                    subs[i].nextGeneration();
+                }
+            });
+            generation += steps;
+            if (generation < maxGeneration) {
+                migrate(subs);
+            }
+        }
+
+        GeneticAlgorithm best = subs[0];
+        mutationTimes = 0;
+        for (GeneticAlgorithm sub : subs) {
+            mutationTimes += sub.mutationTimes;
+            if (sub.bestDist < best.bestDist) {
+                best = sub;
+            }
+        }
+        currentGeneration = generation;
+        bestDist = best.bestDist;
+        bestIndivial = best.bestIndivial.clone();
+        return getBestIndivial();
+    }
+
+    private void migrate(GeneticAlgorithm[] subs) {
+        int size = Math.min(migrationSize, populationSize - 1);
+        int[][][] emigrants = new int[subs.length][][];
+        for (int i = 0; i < subs.length; i++) {
+            emigrants[i] = subs[i].elite(size);
+        }
+        for (int i = 0; i < subs.length; i++) {
+            subs[(i + 1) % subs.length].immigrate(emigrants[i]);
+        }
+    }
+
+    private int[][] elite(int size) {
+        int[][] elite = new int[size][];
+        boolean[] taken = new boolean[populationSize];
+        for (int k = 0; k < size; k++) {
+            int best = -1;
+            for (int i = 0; i < populationSize; i++) {
+                if (!taken[i] && (best < 0 || values[i] < values[best])) {
+                    best = i;
+                }
+            }
+            taken[best] = true;
+            elite[k] = population[best].clone();
+        }
+        return elite;
+    }
+
+    private void immigrate(int[][] tours) {
+        boolean[] replaced = new boolean[populationSize];
+        for (int[] tour : tours) {
+            int worst = -1;
+            for (int i = 0; i < populationSize; i++) {
+                if (!replaced[i] && (worst < 0 || values[i] > values[worst])) {
+                    worst = i;
+                }
+            }
+            replaced[worst] = true;
+            population[worst] = tour;
+            values[worst] = calculateIndivialDist(tour);
+            if (values[worst] < bestDist) {
+                bestDist = values[worst];
+                bestIndivial = tour.clone();
+            }
+        }
+        evaluateBestCurrentDist();
+    }
+
     private void init() {
         mutationTimes = 0;
         currentGeneration = 0;
@@ -75,6 +257,7 @@ public class GeneticAlgorithm {
         fitnessValues = new float[populationSize];
         roulette = new float[populationSize];
         population = new int[populationSize][pointNum];
+        scratch = new Scratch[populationSize / 2];
 
         //initDist(points);
         for (int i = 0; i < populationSize; i++) {
@@ -93,7 +276,7 @@ public class GeneticAlgorithm {
     }
 
     private void selection() {
-        int[][] parents = new int[populationSize][pointNum];
+        int[][] parents = new int[populationSize][];
 
         int initnum = 4;
         parents[0] = population[currentBestPosition];
@@ -103,7 +286,7 @@ public class GeneticAlgorithm {
 
         setRoulette();
         for (int i = initnum; i < populationSize; i++) {
-            parents[i] = population[wheelOut((int) Math.random())];
+            parents[i] = population[wheelOut(random.nextFloat())];
         }
         population = parents;
     }
@@ -127,7 +310,7 @@ public class GeneticAlgorithm {
         }
     }
 
-    private int wheelOut(int ran) {
+    private int wheelOut(float ran) {
         for (int i = 0; i < roulette.length; i++) {
             if (ran <= roulette[i]) {
                 return i;
@@ -177,55 +360,74 @@ public class GeneticAlgorithm {
         int[] queue = new int[populationSize];
         int num = 0;
         for (int i = 0; i < populationSize; i++) {
-            if (Math.random() < crossoverProbability) {
+            if (random.nextFloat() < crossoverProbability) {
                 queue[num] = i;
                 num++;
             }
         }
         queue = Arrays.copyOfRange(queue, 0, num);
-        queue = shuffle(queue);
-        for (int i = 0; i < num - 1; i += 2) {
-            doCrossover(queue[i], queue[i + 1]);
+        int[] pairs = shuffle(queue);
+        int[] starts = new int[num - num % 2];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = random(pointNum);
         }
+        forEach(starts.length / 2, k -> doCrossover(k, pairs[2 * k], pairs[2 * k + 1], starts[2 * k], starts[2 * k + 1]));
     }
 
     private static final int PREVIOUS = 0;
     private static final int NEXT = 1;
 
-    private void doCrossover(int x, int y) {
-        population[x] = getChild(x, y, PREVIOUS);
-        population[y] = getChild(x, y, NEXT);
+    /**
+     * A keresztezés munkaterülete: a két szülő körútja kétirányú láncolt listaként, városonként az előző
+     * és a következő város. Egy város törlése a listából konstans idejű, így egy utód O(n) idő alatt,
+     * a szülők másolása nélkül készül el. Szülőpáronként külön példány, hogy a párok párhuzamosan is keresztezhetők legyenek.
+     */
+    private static final class Scratch {
+        private final int[] predX;
+        private final int[] succX;
+        private final int[] predY;
+        private final int[] succY;
+
+        Scratch(int n) {
+            predX = new int[n];
+            succX = new int[n];
+            predY = new int[n];
+            succY = new int[n];
+        }
+    }
+
+    private Scratch[] scratch;
+
+    private void doCrossover(int k, int x, int y, int startX, int startY) {
+        if (scratch[k] == null) {
+            scratch[k] = new Scratch(pointNum);
+        }
+        population[x] = getChild(x, y, PREVIOUS, startX, scratch[k]);
+        population[y] = getChild(x, y, NEXT, startY, scratch[k]);
     }
 
-    private int[] getChild(int x, int y, int pos) {
+    private int[] getChild(int x, int y, int pos, int start, Scratch s) {
         int[] solution = new int[pointNum];
-        int[] px = population[x].clone();
-        int[] py = population[y].clone();
+        int[] px = population[x];
+        int[] py = population[y];
+        link(px, s.predX, s.succX);
+        link(py, s.predY, s.succY);
 
-        int dx = 0, dy = 0;
-        int c = px[random(px.length)];
+        int dx, dy;
+        int c = px[start];
         solution[0] = c;
 
         for (int i = 1; i < pointNum; i++) {
-            int posX = indexOf(px, c);
-            int posY = indexOf(py, c);
-
             if (pos == PREVIOUS) {
-                dx = px[(posX + px.length - 1) % px.length];
-                dy = py[(posY + py.length - 1) % py.length];
-            } else if (pos == NEXT) {
-                dx = px[(posX + px.length + 1) % px.length];
-                dy = py[(posY + py.length + 1) % py.length];
+                dx = s.predX[c];
+                dy = s.predY[c];
+            } else {
+                dx = s.succX[c];
+                dy = s.succY[c];
             }
 
-            for (int j = posX; j < px.length - 1; j++) {
-                px[j] = px[j + 1];
-            }
-            px = Arrays.copyOfRange(px, 0, px.length - 1);
-            for (int j = posY; j < py.length - 1; j++) {
-                py[j] = py[j + 1];
-            }
-            py = Arrays.copyOfRange(py, 0, py.length - 1);
+            unlink(c, s.predX, s.succX);
+            unlink(c, s.predY, s.succY);
 
             c = dist[c][dx] < dist[c][dy] ? dx : dy;
 
@@ -234,10 +436,24 @@ public class GeneticAlgorithm {
         return solution;
     }
 
+    private static void link(int[] seq, int[] pred, int[] succ) {
+        int last = seq[seq.length - 1];
+        for (int city : seq) {
+            pred[city] = last;
+            succ[last] = city;
+            last = city;
+        }
+    }
+
+    private static void unlink(int city, int[] pred, int[] succ) {
+        succ[pred[city]] = succ[city];
+        pred[succ[city]] = pred[city];
+    }
+
     private void mutation() {
         for (int i = 0; i < populationSize; i++) {
-            if (Math.random() < mutationProbability) {
-                if (Math.random() > 0.5) {
+            if (random.nextFloat() < mutationProbability) {
+                if (random.nextFloat() > 0.5) {
                     population[i] = insertMutate(population[i]);
                 } else {
                     population[i] = exchangeMutate(population[i]);
@@ -248,9 +464,7 @@ public class GeneticAlgorithm {
     }
 
     private void evaluateBestIndivial() {
-        for (int i = 0; i < population.length; i++) {
-            values[i] = calculateIndivialDist(population[i]);
-        }
+        forEach(population.length, i -> values[i] = calculateIndivialDist(population[i]));
         evaluateBestCurrentDist();
         if (bestDist == 0 || bestDist > currentBestDist) {
             bestDist = currentBestDist;
@@ -295,28 +509,8 @@ public class GeneticAlgorithm {
         return a;
     }
 
-    private static Random rd;
-
     private int random(int n) {
-        Random ran = rd;
-        if (ran == null) {
-            ran = new Random();
-        }
-        return ran.nextInt(n);
-    }
-
-    private int[] concatAllArray(int[] first, int[]... rest) {
-        int totalLength = first.length;
-        for (int[] array : rest) {
-            totalLength += array.length;
-        }
-        int[] result = Arrays.copyOf(first, totalLength);
-        int offset = first.length;
-        for (int[] array : rest) {
-            System.arraycopy(array, 0, result, offset, array.length);
-            offset += array.length;
-        }
-        return result;
+        return random.nextInt(n);
     }
 
     private int indexOf(int[] a, int index) {
@@ -347,6 +541,30 @@ public class GeneticAlgorithm {
         this.maxGeneration = maxGeneration;
     }
 
+    public void setIslands(int islands) {
+        this.islands = Math.max(1, islands);
+    }
+
+    public int getIslands() {
+        return islands;
+    }
+
+    public void setMigrationInterval(int migrationInterval) {
+        this.migrationInterval = Math.max(1, migrationInterval);
+    }
+
+    public int getMigrationInterval() {
+        return migrationInterval;
+    }
+
+    public void setMigrationSize(int migrationSize) {
+        this.migrationSize = Math.max(0, migrationSize);
+    }
+
+    public int getMigrationSize() {
+        return migrationSize;
+    }
+
     public void setAutoNextGeneration(boolean autoNextGeneration) {
         isAutoNextGeneration = autoNextGeneration;
     }
@@ -359,6 +577,16 @@ public class GeneticAlgorithm {
         return currentGeneration;
     }
 
+    public static float[][] getDist(double[] x, double[] y) {
+        float[][] dist = new float[x.length][x.length];
+        for (int i = 0; i < x.length; i++) {
+            for (int j = 0; j < x.length; j++) {
+                dist[i][j] = (float) Math.sqrt((x[i] - x[j]) * (x[i] - x[j]) + (y[i] - y[j]) * (y[i] - y[j]));
+            }
+        }
+        return dist;
+    }
+
     public static float[][] getDist(ArrayList<Item> points) {
         float[][] dist = new float[points.size()][points.size()];
         for (int i = 0; i < points.size(); i++) {
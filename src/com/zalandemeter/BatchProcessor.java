@@ -0,0 +1,260 @@
+package com.zalandemeter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Grafikus felület nélküli, parancssori kötegelt feldolgozást megvalósító osztály.
+ * Egy könyvtár összes CSV fájlját korlátozott méretű szálkészleten beolvassa és ellenőrzi,
+ * kérésre a "Show curve" menüponttal megegyező módon sorbarendezi a kék és sárga objektumokat,
+ * és a fájlonkénti eredményeket, időket a végén táblázatban írja ki.
+ * <pre>
+ * java com.zalandemeter.GUI --batch &lt;könyvtár&gt; [--order] [--out &lt;könyvtár&gt;] [--threads &lt;szálak&gt;]
+ * </pre>
+ * @author zalandemeter
+ */
+public class BatchProcessor {
+
+    /**
+     * A sorbarendezett kimeneti fájlok utótagja, a "Show curve" menüponttal megegyezően a fájlnév után fűzve.
+     */
+    private static final String ORDERED_SUFFIX = ".ordered.csv";
+
+    /**
+     * A feldolgozandó fájlokat tartalmazó könyvtár.
+     */
+    private final File inputDir;
+
+    /**
+     * A sorbarendezett fájlok kimeneti könyvtára.
+     */
+    private final File outputDir;
+
+    /**
+     * Igaz, ha a fájlokat sorba is kell rendezni.
+     */
+    private final boolean order;
+
+    /**
+     * A párhuzamosan feldolgozott fájlok maximális száma.
+     */
+    private final int threads;
+
+    /**
+     * Egy fájl feldolgozásának eredménye.
+     */
+    static class Result {
+        /**
+         * A feldolgozott fájl neve.
+         */
+        private final String name;
+
+        /**
+         * A beolvasott objektumok száma.
+         */
+        private int rows;
+
+        /**
+         * A hibás sorok száma.
+         */
+        private int errors;
+
+        /**
+         * A beolvasás ideje ezredmásodpercben.
+         */
+        private long parseMillis;
+
+        /**
+         * A sorbarendezés ideje ezredmásodpercben.
+         */
+        private long orderMillis;
+
+        /**
+         * A kiírás ideje ezredmásodpercben.
+         */
+        private long writeMillis;
+
+        /**
+         * A feldolgozást megszakító hiba leírása, vagy null ha a feldolgozás sikeres volt.
+         */
+        private String failure;
+
+        /**
+         * Az osztály konstruktora.
+         * @param name a feldolgozott fájl neve.
+         */
+        Result(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Megadja, hogy a fájl feldolgozása hiba nélkül befejeződött-e.
+         * @return igaz, ha nem volt hibás sor és a feldolgozás nem szakadt meg.
+         */
+        boolean isOk() {
+            return failure == null && errors == 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-40s %9d %7d %9d %9d %9d  %s", name, rows, errors, parseMillis, orderMillis,
+                    writeMillis, failure != null ? failure : errors > 0 ? "malformed lines" : "ok");
+        }
+    }
+
+    /**
+     * Az osztály konstruktora.
+     * @param inputDir a feldolgozandó fájlokat tartalmazó könyvtár.
+     * @param outputDir a sorbarendezett fájlok kimeneti könyvtára.
+     * @param order igaz, ha a fájlokat sorba is kell rendezni.
+     * @param threads a párhuzamosan feldolgozott fájlok maximális száma.
+     */
+    public BatchProcessor(File inputDir, File outputDir, boolean order, int threads) {
+        this.inputDir = inputDir;
+        this.outputDir = outputDir;
+        this.order = order;
+        this.threads = threads;
+    }
+
+    /**
+     * Feldolgozza a parancssori argumentumokat és lefuttatja a kötegelt feldolgozást.
+     * @param args a program argumentumai, az első a --batch kapcsoló.
+     * @return a program kilépési kódja: 0 siker, 1 hibás fájl, 2 hibás argumentum esetén.
+     */
+    public static int run(String[] args) {
+        File inputDir = null;
+        File outputDir = null;
+        boolean order = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--batch": inputDir = new File(args[++i]); break;
+                    case "--out": outputDir = new File(args[++i]); break;
+                    case "--order": order = true; break;
+                    case "--threads": threads = Integer.parseInt(args[++i]); break;
+                    default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println(e instanceof ArrayIndexOutOfBoundsException ? "Missing option value" : e.getMessage());
+            inputDir = null;
+        }
+        if (inputDir == null || threads < 1) {
+            System.err.println("Usage: --batch <dir> [--order] [--out <dir>] [--threads <n>]");
+            return 2;
+        }
+        if (!inputDir.isDirectory()) {
+            System.err.println("Not a directory: " + inputDir);
+            return 2;
+        }
+        List<Result> results = new BatchProcessor(inputDir, outputDir != null ? outputDir : inputDir, order, threads).process();
+        return results.stream().allMatch(Result::isOk) ? 0 : 1;
+    }
+
+    /**
+     * Feldolgozza a könyvtár összes CSV és tömörített CSV fájlját, a korábban előállított sorbarendezett fájlok kivételével,
+     * majd kiírja az összesítő táblázatot.
+     * @return a fájlonkénti eredmények, fájlnév szerinti sorrendben.
+     */
+    public List<Result> process() {
+        File[] files = inputDir.listFiles((dir, name) -> (name.endsWith(".csv") && !name.endsWith(ORDERED_SUFFIX))
+                || name.endsWith(".csv" + CSVFileHandler.COMPRESSED_SUFFIX));
+        if (files == null) {
+            files = new File[0];
+        }
+        Arrays.sort(files);
+        if (order) {
+            try {
+                Files.createDirectories(outputDir.toPath());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayList<Future<Result>> futures = new ArrayList<>(files.length);
+        for (File file: files) {
+            futures.add(pool.submit(() -> process(file)));
+        }
+        ArrayList<Result> results = new ArrayList<>(files.length);
+        try {
+            for (int i = 0; i < files.length; i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    Result result = new Result(files[i].getName());
+                    result.failure = String.valueOf(e.getCause());
+                    results.add(result);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdownNow();
+        }
+
+        System.out.println(String.format("%-40s %9s %7s %9s %9s %9s  %s", "file", "rows", "errors", "parse ms",
+                "order ms", "write ms", "status"));
+        for (Result result: results) {
+            System.out.println(result);
+        }
+        long failed = results.stream().filter(r -> !r.isOk()).count();
+        System.out.println(results.size() + " files, " + failed + " with problems, "
+                + (System.nanoTime() - start) / 1_000_000 + " ms on " + threads + " threads");
+        return results;
+    }
+
+    /**
+     * Egy fájl feldolgozása a saját vásznán, a grafikus felület által is használt függvényekkel.
+     * A vászon objektumainak memóriáját a feldolgozás végén azonnal felszabadítja.
+     * @param file a feldolgozandó fájl.
+     * @return a feldolgozás eredménye.
+     */
+    private Result process(File file) {
+        Result result = new Result(file.getName());
+        CSVCanvas canvas = new CSVCanvas();
+        CSVFileHandler csvFileHandler = new CSVFileHandler(canvas);
+        csvFileHandler.setCache(null);
+        CSVParser parser = new CSVParser(canvas::addObject);
+
+        try {
+            long time = System.nanoTime();
+            try {
+                csvFileHandler.read(file.getAbsolutePath(), parser);
+            } catch (IOException e) {
+                result.failure = String.valueOf(e);
+                return result;
+            }
+            result.parseMillis = (System.nanoTime() - time) / 1_000_000;
+            result.rows = parser.getRowCount();
+            result.errors = parser.getErrorCount();
+            csvFileHandler.reportErrors(file.getPath(), parser);
+
+            if (order) {
+                time = System.nanoTime();
+                canvas.initCurve();
+                result.orderMillis = (System.nanoTime() - time) / 1_000_000;
+
+                time = System.nanoTime();
+                File out = new File(outputDir, file.getName() + ORDERED_SUFFIX);
+                if (!csvFileHandler.saveOrderedCSV(out.getAbsolutePath())) {
+                    result.failure = "write failed";
+                }
+                result.writeMillis = (System.nanoTime() - time) / 1_000_000;
+            }
+            return result;
+        } finally {
+            canvas.releaseObjects();
+        }
+    }
+}
@@ -5,12 +5,17 @@ import com.onlylemi.genetictsp.GeneticAlgorithm;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.geom.AffineTransform;
-import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Rectangle2D;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Az objektumok felülnézeti két dimenziós koordinátarendszerben való kijelzését megvalósító osztály.
@@ -38,9 +43,9 @@ public class CSVCanvas extends JComponent {
     private AffineTransform at;
 
     /**
-     * A tárolt objektumok listája.
+     * A tárolt objektumok listája, primitív tömbökben tárolva.
      */
-    private final ArrayList<Item> objects;
+    private ConeStore objects;
 
     /**
      * A tárolt kék objektumok listája. Szükséges az objektumok sorbarendezéséhez
@@ -62,6 +67,107 @@ public class CSVCanvas extends JComponent {
      */
     private int[] idxYellow;
 
+    /**
+     * A kirajzolt objektumok számát jelző tulajdonság neve, változásakor a vászon PropertyChangeEvent-et küld.
+     */
+    public static final String DRAWN_PROPERTY = "drawnObjects";
+
+    /**
+     * Az összes objektum számát jelző tulajdonság neve, változásakor a vászon PropertyChangeEvent-et küld.
+     */
+    public static final String TOTAL_PROPERTY = "totalObjects";
+
+    /**
+     * A sorbarendezést végző genetikus algoritmus párhuzamosságát megadó rendszertulajdonság neve
+     * (-Dcsveditor.parallelism=4). Alapértéke a processzormagok számának fele, mert a két ív egyszerre rendeződik.
+     */
+    public static final String PARALLELISM_PROPERTY = "csveditor.parallelism";
+
+    /**
+     * A genetikus algoritmus szigetmodelljének szigetszámát megadó rendszertulajdonság neve (-Dcsveditor.islands=4).
+     * Alapértéke 1, ekkor egyetlen populációval fut.
+     */
+    public static final String ISLANDS_PROPERTY = "csveditor.islands";
+
+    /**
+     * A sorbarendező eljárást megadó rendszertulajdonság neve (-Dcsveditor.solver=local).
+     * Értéke auto, genetic vagy local, alapértéke auto.
+     */
+    public static final String SOLVER_PROPERTY = "csveditor.solver";
+
+    /**
+     * Az ívenkénti objektumszám, amitől az automatikus választás a lokális keresést használja a genetikus algoritmus helyett.
+     */
+    public static final int LOCAL_SEARCH_THRESHOLD = 100;
+
+    /**
+     * A sorbarendező eljárás. Automatikus választás esetén {@link #LOCAL_SEARCH_THRESHOLD} objektumtól
+     * a lokális keresés, alatta a genetikus algoritmus rendez.
+     */
+    public enum Solver{
+        auto, genetic, local
+    }
+
+    /**
+     * A beállított sorbarendező eljárás.
+     */
+    private Solver solver;
+
+    /**
+     * Az eszköz pixelenkénti objektumszám, ami fölött a vászon az objektumok helyett a sűrűségüket rajzolja ki.
+     */
+    public static final double DENSITY_THRESHOLD = 1.0 / 256;
+
+    /**
+     * A sűrűségi ábrázolás celláinak legkisebb mérete eszköz pixelekben.
+     */
+    private static final double DENSITY_CELL_PIXELS = 4;
+
+    /**
+     * Az objektumszám, aminél a sűrűségi ábrázolás egy cellája teljesen fedő színt kap.
+     */
+    private static final int DENSITY_SATURATION = 64;
+
+    /**
+     * A legutóbbi kirajzoláskor látható, kirajzolt objektumok száma.
+     */
+    private int drawnObjects;
+
+    /**
+     * Az objektumok száma a legutóbbi kirajzoláskor.
+     */
+    private int totalObjects;
+
+    /**
+     * Az objektumok előre kirajzolt képei.
+     */
+    private final SpriteCache sprites;
+
+    /**
+     * Az állandó rétegnek (háttér, ívek, kijelöletlen objektumok) eltárolt képe.
+     */
+    private final StaticLayer staticLayer;
+
+    /**
+     * A látható objektumok indexei a kirajzoláshoz. Kirajzolások között újrahasznosítjuk.
+     */
+    private int[] visible;
+
+    /**
+     * Az ívek kirajzolásához használt vonalstílus.
+     */
+    private static final BasicStroke CURVE_STROKE = new BasicStroke(5);
+
+    /**
+     * A kék ív eltárolt útvonala.
+     */
+    private final CurvePath blueCurve;
+
+    /**
+     * A sárga ív eltárolt útvonala.
+     */
+    private final CurvePath yellowCurve;
+
     /**
      * Az osztály konstruktora. Beállítja az eltolási értékeket 0-ra és a nagyítás értéket 1.1-re.
      * 1.1 szükséges alapértelmezettként, hogy ne tudjon 0-ra csökkenni a nagyítás érték.
@@ -71,39 +177,100 @@ public class CSVCanvas extends JComponent {
         translateX = 0;
         translateY = 0;
         scale = 1.1;
-        objects = new ArrayList<>();
+        objects = ConeStore.create();
+        visible = new int[0];
+        sprites = new SpriteCache();
+        staticLayer = new StaticLayer();
+        blueCurve = new CurvePath();
+        yellowCurve = new CurvePath();
         blue = new ArrayList<>();
         yellow = new ArrayList<>();
+        try {
+            solver = Solver.valueOf(System.getProperty(SOLVER_PROPERTY, Solver.auto.name()));
+        } catch (IllegalArgumentException e) {
+            e.printStackTrace();
+            solver = Solver.auto;
+        }
+    }
+
+    /**
+     * Beállítja a sorbarendező eljárást, amit a következő {@link #initCurve()} használ.
+     * @param solver a sorbarendező eljárás.
+     */
+    public void setSolver(Solver solver) {
+        this.solver = solver;
+    }
+
+    /**
+     * A beállított sorbarendező eljárás.
+     * @return a sorbarendező eljárás.
+     */
+    public Solver getSolver() {
+        return solver;
     }
 
     /**
      * Sorbarendezi a kék és sárga objektumokat külön-külön. Elhelyezi ezeket az indexeket a megfelelő listába.
+     * A két ívet egymástól független sorbarendező példányok párhuzamosan rendezik:
+     * a sárga ívet egy munkaszál, a kéket a hívó szál. Az eljárást a {@link #setSolver(Solver)} választja ki.
      */
     public void initCurve(){
         clearCurve();
-        for (Item i: objects) {
-            if (i.getColor() == 1){
-                blue.add(i);
+        for (int i = 0; i < objects.size(); i++) {
+            if (objects.getColor(i) == 1){
+                blue.add(objects.get(i));
             }
-            if (i.getColor()==2){
-                yellow.add(i);
+            if (objects.getColor(i) == 2){
+                yellow.add(objects.get(i));
             }
         }
+        CompletableFuture<int[]> yellowOrder = yellow.size()>2
+                ? CompletableFuture.supplyAsync(() -> order(yellow))
+                : CompletableFuture.completedFuture(null);
         if (blue.size()>2){
-            GeneticAlgorithm ga1 = GeneticAlgorithm.getInstance();
-            ga1.setMaxGeneration(1000);
-            ga1.setAutoNextGeneration(true);
-            idxBlue = ga1.tsp(GeneticAlgorithm.getDist(blue));
-        }
-        if (yellow.size()>2){
-            GeneticAlgorithm ga2 = GeneticAlgorithm.getInstance();
-            ga2.setMaxGeneration(1000);
-            ga2.setAutoNextGeneration(true);
-            idxYellow = ga2.tsp(GeneticAlgorithm.getDist(yellow));
+            idxBlue = order(blue);
         }
+        idxYellow = yellowOrder.join();
         repaint();
     }
 
+    /**
+     * Sorbarendezi a paraméterül kapott objektumokat a beállított eljárással: lokális kereséssel, vagy egy új
+     * genetikus algoritmus példánnyal.
+     * @param items a tároló objektumainak nézetei.
+     * @return a sorrend indexei.
+     */
+    private int[] order(ArrayList<Item> items){
+        double[][] coordinates = getCoordinates(items);
+        if (solver == Solver.local || (solver == Solver.auto && items.size() >= LOCAL_SEARCH_THRESHOLD)) {
+            return new TourOptimizer(coordinates[0], coordinates[1]).solve();
+        }
+        try (GeneticAlgorithm ga = new GeneticAlgorithm()) {
+            ga.setMaxGeneration(1000);
+            ga.setAutoNextGeneration(true);
+            int threads = Integer.getInteger(PARALLELISM_PROPERTY, Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+            ga.setParallelism(threads);
+            ga.setIslands(Integer.getInteger(ISLANDS_PROPERTY, 1));
+            return ga.tsp(GeneticAlgorithm.getDist(coordinates[0], coordinates[1]));
+        }
+    }
+
+    /**
+     * A paraméterül kapott objektumok koordinátái. A koordinátákat közvetlenül a tároló tömbjeiből olvassa ki.
+     * @param items a tároló objektumainak nézetei.
+     * @return az X és az Y koordináták tömbje.
+     */
+    private double[][] getCoordinates(ArrayList<Item> items){
+        double[] x = new double[items.size()];
+        double[] y = new double[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            int index = objects.indexOf(items.get(i));
+            x[i] = objects.getX(index);
+            y[i] = objects.getY(index);
+        }
+        return new double[][]{x, y};
+    }
+
     /**
      * A paraméterül kapott indexek alapján a paraméterül kapott listában összeköti az objektumokat és kirajzolja ezt.
      * @param ourGraphics grafika amire rajzol.
@@ -112,50 +279,403 @@ public class CSVCanvas extends JComponent {
      * @param color szín amivel kirajzol.
      */
     public void drawCurve(Graphics2D ourGraphics, int[] idx, ArrayList<Item> items, Color color){
-        if (idx != null){
+        if (idx != null && idx.length > 0){
             ourGraphics.setColor(color);
-            for (int i = 0; i<idx.length; ++i){
-                ourGraphics.setStroke(new BasicStroke(5));
-                if (i == items.size()-1){
-                    ourGraphics.draw(new Line2D.Double(items.get(idx[i]).getX()*Item.getObjectDistance(),items.get(idx[i]).getY()*Item.getObjectDistance(),items.get(idx[0]).getX()*Item.getObjectDistance(), items.get(idx[0]).getY()*Item.getObjectDistance()));
-                } else {
-                    ourGraphics.draw(new Line2D.Double(items.get(idx[i]).getX()*Item.getObjectDistance(),items.get(idx[i]).getY()*Item.getObjectDistance(),items.get(idx[i+1]).getX()*Item.getObjectDistance(), items.get(idx[i+1]).getY()*Item.getObjectDistance()));
-                }
-            }
+            ourGraphics.setStroke(CURVE_STROKE);
+            ourGraphics.draw(CurvePath.build(idx, items));
+        }
+    }
+
+    /**
+     * Kirajzolja az ív eltárolt útvonalát egyetlen alakzatként, ha metszi a látható területet.
+     * @param ourGraphics grafika amire rajzol.
+     * @param curve az ív eltárolt útvonala.
+     * @param path az ív útvonala, vagy null ha nincs sorbarendezés.
+     * @param color szín amivel kirajzol.
+     * @param area a látható terület a koordinátarendszer egységeiben.
+     */
+    private void drawCurve(Graphics2D ourGraphics, CurvePath curve, Path2D path, Color color, Rectangle2D area){
+        if (path == null) {
+            return;
+        }
+        double distance = Item.getObjectDistance();
+        double margin = CURVE_STROKE.getLineWidth();
+        Rectangle2D bounds = curve.getBounds();
+        if (bounds.getMaxX() + margin < area.getMinX() * distance || bounds.getMinX() - margin > area.getMaxX() * distance
+                || bounds.getMaxY() + margin < area.getMinY() * distance || bounds.getMinY() - margin > area.getMaxY() * distance) {
+            return;
+        }
+        ourGraphics.setColor(color);
+        ourGraphics.setStroke(CURVE_STROKE);
+        ourGraphics.draw(path);
+    }
+
+    /**
+     * A terület a koordinátarendszer egységeiben, egy objektum sugarával kibővítve,
+     * hogy a szélén részben látszó objektumok is kirajzolódjanak.
+     * @param transform a koordinátarendszerből a pixelekbe képező transzformáció.
+     * @param pixels a terület pixelekben.
+     * @return a terület a koordinátarendszer egységeiben.
+     */
+    private Rectangle2D getVisibleArea(AffineTransform transform, Rectangle2D pixels) {
+        Rectangle2D bounds;
+        try {
+            bounds = transform.createInverse().createTransformedShape(pixels).getBounds2D();
+        } catch (NoninvertibleTransformException e) {
+            e.printStackTrace();
+            bounds = new Rectangle2D.Double(-Double.MAX_VALUE / 4, -Double.MAX_VALUE / 4, Double.MAX_VALUE / 2, Double.MAX_VALUE / 2);
         }
+        double margin = Item.getObjectSize() / 2.0;
+        double distance = Item.getObjectDistance();
+        return new Rectangle2D.Double((bounds.getX() - margin) / distance, (bounds.getY() - margin) / distance,
+                (bounds.getWidth() + 2 * margin) / distance, (bounds.getHeight() + 2 * margin) / distance);
+    }
+
+    /**
+     * A vászon nagyítását és eltolását tartalmazó transzformáció, a vászon koordinátáiban.
+     * @return a transzformáció.
+     */
+    private AffineTransform getView() {
+        AffineTransform view = new AffineTransform();
+        view.translate(getWidth()/2.0, getHeight()/2.0);
+        view.scale(scale, scale);
+        view.translate(-getWidth()/2.0, -getHeight()/2.0);
+        view.translate(translateX, translateY);
+        return view;
+    }
+
+    /**
+     * Az objektum környezete a vászon koordinátáiban, amit az objektum mozgatásakor újra kell rajzolni.
+     * Sűrűségi ábrázolásnál az objektumot tartalmazó cellát is lefedi.
+     * @param x az objektum X koordinátája.
+     * @param y az objektum Y koordinátája.
+     * @return az újrarajzolandó terület.
+     */
+    public Rectangle getRepaintBounds(double x, double y) {
+        Point2D center = getView().transform(new Point2D.Double(x * Item.getObjectDistance(), y * Item.getObjectDistance()), null);
+        double radius = Math.max(Item.getObjectSize() * scale / 2, 2 * DENSITY_CELL_PIXELS) + 2;
+        return new Rectangle2D.Double(center.getX() - radius, center.getY() - radius, 2 * radius, 2 * radius).getBounds();
     }
 
     /**
      * Kirajzolja a vásznat és a tárolt objektumokat.
      * Amennyiben az index listák nem üresek, össze is köti a megfelelő objektumokat.
+     * A hátteret, az íveket és a kijelöletlen objektumokat egy eltárolt képre rajzolja, amit csak az objektumok,
+     * az ívek vagy a nagyítás változásakor rajzol újra. Eltoláskor a kép tartalmát eltolja, és csak az újonnan
+     * láthatóvá vált sávokat rajzolja ki. A kijelölt objektumokat minden alkalommal a kép fölé rajzolja,
+     * így egy kijelölt objektum mozgatásakor csak azt kell újrarajzolni.
      * @param g a módosítandó grafika.
      */
     public void paintComponent(Graphics g) {
 
         Graphics2D ourGraphics = (Graphics2D)g.create();
         try {
-            ourGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            ourGraphics.setColor(new Color(48,48,48));
-            ourGraphics.fillRect(0, 0, getWidth(), getHeight());
+            AffineTransform base = ourGraphics.getTransform();
+            AffineTransform view = getView();
+            at = new AffineTransform(base);
+            at.concatenate(view);
+
+            double deviceScale = base.getScaleX();
+            if (base.getShearX() != 0 || base.getShearY() != 0 || base.getScaleY() != deviceScale || deviceScale <= 0) {
+                /*
+                 * Forgatott vagy torzított eszköz transzformáció esetén nem használható az eltárolt kép.
+                 */
+                int drawn = paintLayer(ourGraphics, view, new Rectangle(0, 0, getWidth(), getHeight()), true, false);
+                setDrawnObjects(drawn, objects.size());
+                return;
+            }
+
+            int width = (int) Math.ceil(getWidth() * deviceScale);
+            int height = (int) Math.ceil(getHeight() * deviceScale);
+            if (width <= 0 || height <= 0) {
+                return;
+            }
+            AffineTransform layerTransform = AffineTransform.getScaleInstance(deviceScale, deviceScale);
+            layerTransform.concatenate(view);
+            int drawn = updateStaticLayer(width, height, deviceScale, layerTransform);
 
-            at = new AffineTransform(ourGraphics.getTransform());
-            at.translate(getWidth()/2.0, getHeight()/2.0);
-            at.scale(scale, scale);
-            at.translate(-getWidth()/2.0, -getHeight()/2.0);
-            at.translate(translateX, translateY);
+            ourGraphics.setTransform(AffineTransform.getTranslateInstance(base.getTranslateX(), base.getTranslateY()));
+            ourGraphics.drawImage(staticLayer.prepare(width, height, getGraphicsConfiguration()), 0, 0, null);
+
+            /*
+             * A kijelölt objektumok a mozgó réteg, ezeket mindig újrarajzoljuk.
+             * Sűrűségi ábrázolásnál a réteg már a kijelölt objektumokat is beszámolta.
+             */
             ourGraphics.setTransform(at);
+            ourGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            Rectangle2D area = getVisibleArea(view, new Rectangle(0, 0, getWidth(), getHeight()));
+            int count = 0;
+            BitSet selection = objects.getSelection();
+            for (int i = selection.nextSetBit(0); i >= 0 && i < objects.size(); i = selection.nextSetBit(i + 1)) {
+                if (area.contains(objects.getX(i), objects.getY(i))) {
+                    if (count == visible.length) {
+                        visible = Arrays.copyOf(visible, Math.max(16, count * 2));
+                    }
+                    visible[count++] = i;
+                }
+            }
+            paintObjects(ourGraphics, visible, count);
+            setDrawnObjects(staticLayer.isDensity() ? drawn : drawn + count, objects.size());
+        } finally {
+            ourGraphics.dispose();
+        }
+    }
 
-            drawCurve(ourGraphics, idxBlue, blue, Color.BLUE);
-            drawCurve(ourGraphics, idxYellow, yellow, Color.YELLOW);
+    /**
+     * Naprakésszé teszi az állandó réteg képét. Ha csak az eltolás változott egész pixelnyit, a kép tartalmát eltolja
+     * és csak a szélén láthatóvá vált sávokat rajzolja ki, egyébként a teljes képet újrarajzolja.
+     * Ha a látható objektumok túl sűrűn vannak ({@link #DENSITY_THRESHOLD}), a réteg a sűrűségüket ábrázolja.
+     * @param width a kép szélessége eszköz pixelekben.
+     * @param height a kép magassága eszköz pixelekben.
+     * @param deviceScale az eszköz léptéke.
+     * @param layerTransform a koordinátarendszerből a kép pixeleibe képező transzformáció.
+     * @return a rétegen látható kijelöletlen objektumok száma.
+     */
+    private int updateStaticLayer(int width, int height, double deviceScale, AffineTransform layerTransform) {
+        BufferedImage image = staticLayer.prepare(width, height, getGraphicsConfiguration());
+        int version = objects.getVersion();
+        boolean density = isDense(layerTransform, width, height);
+        int densityVersion = density ? objects.getDensity().getVersion() : 0;
+        Path2D bluePath = blueCurve.get(idxBlue, blue);
+        Path2D yellowPath = yellowCurve.get(idxYellow, yellow);
+        Graphics2D layerGraphics = image.createGraphics();
+        try {
+            if (staticLayer.matches(scale, deviceScale, version, bluePath, yellowPath, density, densityVersion)) {
+                double dx = (translateX - staticLayer.getTranslateX()) * scale * deviceScale;
+                double dy = (translateY - staticLayer.getTranslateY()) * scale * deviceScale;
+                long shiftX = Math.round(dx);
+                long shiftY = Math.round(dy);
+                if (dx == 0 && dy == 0) {
+                    return staticLayer.getDrawn();
+                }
+                if (Math.abs(dx - shiftX) < 1e-6 && Math.abs(dy - shiftY) < 1e-6
+                        && Math.abs(shiftX) < width && Math.abs(shiftY) < height) {
+                    int sx = (int) shiftX;
+                    int sy = (int) shiftY;
+                    layerGraphics.copyArea(0, 0, width, height, sx, sy);
+                    if (sx != 0) {
+                        paintLayer(layerGraphics, layerTransform, new Rectangle(sx > 0 ? 0 : width + sx, 0, Math.abs(sx), height), false, density);
+                    }
+                    if (sy != 0) {
+                        paintLayer(layerGraphics, layerTransform, new Rectangle(0, sy > 0 ? 0 : height + sy, width, Math.abs(sy)), false, density);
+                    }
+                    Rectangle2D area = getVisibleArea(layerTransform, new Rectangle(0, 0, width, height));
+                    int drawn = density ? paintDensity(null, layerTransform, area) : countVisible(area);
+                    staticLayer.store(scale, deviceScale, translateX, translateY, version, bluePath, yellowPath,
+                            density, densityVersion, drawn);
+                    return drawn;
+                }
+            }
+            int drawn = paintLayer(layerGraphics, layerTransform, new Rectangle(0, 0, width, height), false, density);
+            staticLayer.store(scale, deviceScale, translateX, translateY, version, bluePath, yellowPath,
+                    density, densityVersion, drawn);
+            return drawn;
+        } finally {
+            layerGraphics.dispose();
+        }
+    }
+
+    /**
+     * Megadja, hogy a látható területen az objektumok sűrűsége meghaladja-e a {@link #DENSITY_THRESHOLD} értéket.
+     * Ha az összes objektum sem érné el, a sűrűségi összesítőt nem építi fel.
+     * @param transform a koordinátarendszerből az eszköz pixeleibe képező transzformáció.
+     * @param width a terület szélessége eszköz pixelekben.
+     * @param height a terület magassága eszköz pixelekben.
+     * @return igaz, ha a sűrűséget kell kirajzolni.
+     */
+    private boolean isDense(AffineTransform transform, int width, int height) {
+        double limit = (double) width * height * DENSITY_THRESHOLD;
+        if (objects.size() <= limit) {
+            return false;
+        }
+        Rectangle2D area = getVisibleArea(transform, new Rectangle(0, 0, width, height));
+        return objects.getDensity().estimate(area.getMinX(), area.getMinY(), area.getMaxX(), area.getMaxY()) > limit;
+    }
 
-            for (Item i: objects) {
-                i.paintComponent(ourGraphics);
+    /**
+     * Kirajzolja a hátteret, az íveket és az objektumokat a megadott pixel területre.
+     * @param graphics a grafika, aminek a koordinátái a pixelek.
+     * @param transform a koordinátarendszerből a pixelekbe képező transzformáció.
+     * @param pixels a kirajzolandó terület pixelekben.
+     * @param withSelected igaz, ha a kijelölt objektumokat is ki kell rajzolni.
+     * @param density igaz, ha az objektumok helyett a sűrűségüket kell kirajzolni.
+     * @return a kirajzolt objektumok száma.
+     */
+    private int paintLayer(Graphics2D graphics, AffineTransform transform, Rectangle pixels, boolean withSelected, boolean density) {
+        Graphics2D ourGraphics = (Graphics2D) graphics.create();
+        try {
+            ourGraphics.clipRect(pixels.x, pixels.y, pixels.width, pixels.height);
+            ourGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            ourGraphics.setColor(new Color(48,48,48));
+            ourGraphics.fill(pixels);
+            ourGraphics.transform(transform);
+
+            Rectangle2D area = getVisibleArea(transform, pixels);
+            drawCurve(ourGraphics, blueCurve, blueCurve.get(idxBlue, blue), Color.BLUE, area);
+            drawCurve(ourGraphics, yellowCurve, yellowCurve.get(idxYellow, yellow), Color.YELLOW, area);
+            if (density) {
+                return paintDensity(ourGraphics, ourGraphics.getTransform(), area);
             }
+
+            /*
+             * Csak a látható területre eső objektumokat rajzoljuk ki, a térbeli index segítségével.
+             * Az indexeket sorba rendezzük, hogy az egymást takaró objektumok a tárolás sorrendjében rajzolódjanak.
+             */
+            int[] count = new int[1];
+            objects.forEachIn(area.getMinX(), area.getMinY(), area.getMaxX(), area.getMaxY(), i -> {
+                if (withSelected || !objects.isSelected(i)) {
+                    if (count[0] == visible.length) {
+                        visible = Arrays.copyOf(visible, Math.max(16, count[0] * 2));
+                    }
+                    visible[count[0]++] = i;
+                }
+            });
+            Arrays.sort(visible, 0, count[0]);
+            paintObjects(ourGraphics, visible, count[0]);
+            return count[0];
         } finally {
             ourGraphics.dispose();
         }
     }
 
+    /**
+     * Kirajzolja az objektumok sűrűségét a területre. A sűrűségi összesítőnek azt a szintjét használja, aminek a cellái
+     * legalább {@link #DENSITY_CELL_PIXELS} eszköz pixel szélesek, így a kirajzolt cellák száma a terület pixelméretétől
+     * függ, nem az objektumok számától. A cella színe a benne lévő objektumok színeinek darabszámmal súlyozott keveréke,
+     * fedettsége az objektumszám logaritmusával nő. A cella színe csak a cellától függ, ezért a terület részenként is
+     * kirajzolható.
+     * @param graphics a grafika, vagy null ha csak az objektumokat kell megszámolni.
+     * @param transform a koordinátarendszerből az eszköz pixeleibe képező transzformáció.
+     * @param area a terület a koordinátarendszer egységeiben.
+     * @return a kirajzolt cellákban lévő objektumok száma.
+     */
+    private int paintDensity(Graphics2D graphics, AffineTransform transform, Rectangle2D area) {
+        DensityPyramid density = objects.getDensity();
+        double unit = transform.getScaleX() * Item.getObjectDistance();
+        int level = density.level(DENSITY_CELL_PIXELS / unit);
+        double cellWidth = density.getCellWidth(level);
+        double tx = transform.getTranslateX();
+        double ty = transform.getTranslateY();
+        if (graphics != null) {
+            graphics.setTransform(new AffineTransform());
+        }
+        long[] total = new long[1];
+        density.forEachCell(level, area.getMinX(), area.getMinY(), area.getMaxX(), area.getMaxY(), (cellX, cellY, counts, offset) -> {
+            total[0] += counts[offset + DensityPyramid.TOTAL];
+            if (graphics != null) {
+                int x0 = (int) Math.round(unit * cellX * cellWidth + tx);
+                int y0 = (int) Math.round(unit * cellY * cellWidth + ty);
+                int x1 = (int) Math.round(unit * (cellX + 1) * cellWidth + tx);
+                int y1 = (int) Math.round(unit * (cellY + 1) * cellWidth + ty);
+                graphics.setColor(getDensityColor(counts, offset));
+                graphics.fillRect(x0, y0, x1 - x0, y1 - y0);
+            }
+        });
+        if (graphics != null) {
+            graphics.setTransform(transform);
+        }
+        return (int) Math.min(total[0], Integer.MAX_VALUE);
+    }
+
+    /**
+     * A sűrűségi ábrázolás egy cellájának színe a háttérre keverve.
+     * @param counts a sűrűségi összesítő számlálói.
+     * @param offset a cella első számlálójának helye.
+     * @return a cella színe.
+     */
+    private static Color getDensityColor(int[] counts, int offset) {
+        int total = counts[offset + DensityPyramid.TOTAL];
+        double r = 0, g = 0, b = 0;
+        for (int c = 0; c < DensityPyramid.TOTAL; c++) {
+            int count = counts[offset + c];
+            if (count > 0) {
+                Color color = c < SpriteCache.COLORS ? Item.getPaintColor(c) : Color.GRAY;
+                r += color.getRed() * (double) count;
+                g += color.getGreen() * (double) count;
+                b += color.getBlue() * (double) count;
+            }
+        }
+        double alpha = Math.min(1, 0.35 + 0.65 * Math.log1p(total) / Math.log1p(DENSITY_SATURATION));
+        double background = 48 * (1 - alpha);
+        return new Color((int) Math.round(r / total * alpha + background),
+                (int) Math.round(g / total * alpha + background),
+                (int) Math.round(b / total * alpha + background));
+    }
+
+    /**
+     * A területre eső kijelöletlen objektumok száma, kirajzolás nélkül.
+     * @param area a terület a koordinátarendszer egységeiben.
+     * @return az objektumok száma.
+     */
+    private int countVisible(Rectangle2D area) {
+        int[] count = new int[1];
+        objects.forEachIn(area.getMinX(), area.getMinY(), area.getMaxX(), area.getMaxY(), i -> {
+            if (!objects.isSelected(i)) {
+                count[0]++;
+            }
+        });
+        return count[0];
+    }
+
+    /**
+     * Kirajzolja a megadott indexű objektumokat. Nagyítás és eltolás esetén az objektumok előre kirajzolt képét
+     * másolja az eszköz koordinátáiba, így objektumonként nem kell alakzatot létrehozni és élsimítva kitölteni.
+     * Forgatást tartalmazó transzformáció, vagy ismeretlen színkód esetén alakzatként rajzol.
+     * @param ourGraphics a már transzformált grafika.
+     * @param indexes a kirajzolandó objektumok indexei.
+     * @param count a kirajzolandó objektumok száma.
+     */
+    private void paintObjects(Graphics2D ourGraphics, int[] indexes, int count) {
+        AffineTransform transform = ourGraphics.getTransform();
+        boolean blit = transform.getShearX() == 0 && transform.getShearY() == 0
+                && transform.getScaleX() == transform.getScaleY() && transform.getScaleX() > 0;
+        if (blit) {
+            sprites.update(Item.getObjectSize(), transform.getScaleX(), getGraphicsConfiguration());
+            ourGraphics.setTransform(new AffineTransform());
+        }
+        double m00 = transform.getScaleX() * Item.getObjectDistance();
+        double m11 = transform.getScaleY() * Item.getObjectDistance();
+        double offset = sprites.getSpriteSize() / 2.0;
+        for (int k = 0; k < count; k++) {
+            int i = indexes[k];
+            Image sprite = blit ? sprites.get(objects.getColor(i), objects.isSelected(i)) : null;
+            if (sprite != null) {
+                int x = (int) Math.round(m00 * objects.getX(i) + transform.getTranslateX() - offset);
+                int y = (int) Math.round(m11 * objects.getY(i) + transform.getTranslateY() - offset);
+                ourGraphics.drawImage(sprite, x, y, null);
+            } else {
+                ourGraphics.setTransform(transform);
+                Item.paint(ourGraphics, objects.getX(i), objects.getY(i), objects.getColor(i), objects.isSelected(i));
+                if (blit) {
+                    ourGraphics.setTransform(new AffineTransform());
+                }
+            }
+        }
+        ourGraphics.setTransform(transform);
+    }
+
+    /**
+     * Eltárolja a kirajzolt és az összes objektum számát, és változás esetén értesíti a figyelőket.
+     * @param drawn a kirajzolt objektumok száma.
+     * @param total az összes objektum száma.
+     */
+    private void setDrawnObjects(int drawn, int total) {
+        int oldDrawn = drawnObjects;
+        int oldTotal = totalObjects;
+        drawnObjects = drawn;
+        totalObjects = total;
+        firePropertyChange(DRAWN_PROPERTY, oldDrawn, drawn);
+        firePropertyChange(TOTAL_PROPERTY, oldTotal, total);
+    }
+
+    /**
+     * A legutóbbi kirajzoláskor kirajzolt objektumok számához tartozó getter.
+     * @return a kirajzolt objektumok száma.
+     */
+    public int getDrawnObjects() {
+        return drawnObjects;
+    }
+
     /**
      * Az X irányú eltoláshoz tartozó getter.
      * @return X irányú eltolás értéke.
@@ -216,7 +736,7 @@ public class CSVCanvas extends JComponent {
      * A tárolt objektumokhoz tartozó getter.
      * @return a tárolt objektumok listája.
      */
-    public ArrayList<Item> getObjects() {
+    public ConeStore getObjects() {
         return objects;
     }
 
@@ -262,6 +782,16 @@ public class CSVCanvas extends JComponent {
         objects.add(i);
     }
 
+    /**
+     * Objektumot ad hozzá a vászonhoz objektum példány létrehozása nélkül.
+     * @param x X koordináta 1e-8 egységekben.
+     * @param y Y koordináta 1e-8 egységekben.
+     * @param color színkód.
+     */
+    public void addObject(long x, long y, int color) {
+        objects.addFixed(x, y, color);
+    }
+
     /**
      * Kitörli a vászon által tárolt objektumokat.
      */
@@ -269,6 +799,90 @@ public class CSVCanvas extends JComponent {
         objects.clear();
     }
 
+    /**
+     * Kitörli a vászon által tárolt objektumokat, és azonnal felszabadítja a tárolásukra foglalt memóriát.
+     */
+    public void releaseObjects() {
+        objects.release();
+    }
+
+    /**
+     * Lecseréli a vászon objektumait a paraméterül kapott tárolóra, az íveket eltávolítja.
+     * A régi tárolót nem törli, így a csere a visszaadott tartalommal visszavonható.
+     * @param objects az új tároló.
+     * @return a vászon eddigi objektumai és ívei.
+     */
+    public Contents replaceObjects(ConeStore objects) {
+        Contents previous = new Contents(this.objects, new ArrayList<>(blue), new ArrayList<>(yellow), idxBlue, idxYellow);
+        this.objects = objects;
+        clearCurve();
+        staticLayer.invalidate();
+        return previous;
+    }
+
+    /**
+     * Visszaállítja a {@link #replaceObjects(ConeStore)} előtti objektumokat és íveket.
+     * @param contents a visszaállítandó tartalom.
+     */
+    public void restoreObjects(Contents contents) {
+        objects = contents.objects;
+        clearCurve();
+        blue.addAll(contents.blue);
+        yellow.addAll(contents.yellow);
+        idxBlue = contents.idxBlue;
+        idxYellow = contents.idxYellow;
+        staticLayer.invalidate();
+    }
+
+    /**
+     * A vászon objektumai és ívei egy adott pillanatban, a lecserélt tartalom visszaállításához.
+     */
+    public static final class Contents {
+        /**
+         * Az objektumok tárolója.
+         */
+        private final ConeStore objects;
+
+        /**
+         * A kék objektumok.
+         */
+        private final ArrayList<Item> blue;
+
+        /**
+         * A sárga objektumok.
+         */
+        private final ArrayList<Item> yellow;
+
+        /**
+         * A kék objektumok sorrendje, vagy null.
+         */
+        private final int[] idxBlue;
+
+        /**
+         * A sárga objektumok sorrendje, vagy null.
+         */
+        private final int[] idxYellow;
+
+        /**
+         * Az osztály konstruktora.
+         */
+        private Contents(ConeStore objects, ArrayList<Item> blue, ArrayList<Item> yellow, int[] idxBlue, int[] idxYellow) {
+            this.objects = objects;
+            this.blue = blue;
+            this.yellow = yellow;
+            this.idxBlue = idxBlue;
+            this.idxYellow = idxYellow;
+        }
+
+        /**
+         * Az objektumok tárolójához tartozó getter.
+         * @return az objektumok tárolója.
+         */
+        public ConeStore getObjects() {
+            return objects;
+        }
+    }
+
     /**
      * Kitölri a vászon által tárolt íveket és a hozzá szükséges index listákat.
      */
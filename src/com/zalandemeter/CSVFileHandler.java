@@ -1,15 +1,27 @@
 package com.zalandemeter;
 
 import javax.swing.*;
+import javax.swing.filechooser.FileFilter;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Scanner;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 
 /**
  * A program által megnyitott és szerkesztett fájlokkal kapcsolatos műveleteket megvalósító osztály.
@@ -17,6 +29,43 @@ import java.util.Scanner;
  */
 public class CSVFileHandler {
 
+    /**
+     * A memóriába leképezett betöltést bekapcsoló rendszertulajdonság neve (-Dcsveditor.mmap=true).
+     * A párhuzamos betöltéssel együtt is érvényes: ekkor a párhuzamosan feldolgozott részeket képezi le egyenként.
+     */
+    public static final String MMAP_PROPERTY = "csveditor.mmap";
+
+    /**
+     * A gzip formátumban tömörített fájlok utótagja, pl. Map1.csv.gz.
+     */
+    public static final String COMPRESSED_SUFFIX = ".gz";
+
+    /**
+     * Tömörített fájlok olvasásakor a kicsomagoló bemeneti pufferének mérete bájtokban.
+     */
+    private static final int INFLATE_BUFFER = 1 << 16;
+
+    /**
+     * Egyszerre leképezett fájlrész maximális mérete bájtokban.
+     */
+    private static final long MAP_WINDOW = 1L << 28;
+
+    /**
+     * Ekkora fájlmérettől kezdve darabolja fel és olvassa be párhuzamosan a fájlt.
+     */
+    private static final long PARALLEL_THRESHOLD = 8L << 20;
+
+    /**
+     * Egy párhuzamosan beolvasott fájlrész minimális mérete bájtokban.
+     */
+    private static final long MIN_CHUNK = 1L << 20;
+
+    /**
+     * Egy párhuzamosan beolvasott fájlrész maximális mérete bájtokban. A feldolgozás alatt álló és a
+     * visszajátszásra váró részek sorai a memóriában vannak, ez korlátozza a méretüket.
+     */
+    private static final long MAX_CHUNK = 1L << 25;
+
     /**
      * A koordinátarendszert megjelenítő egységet tárolja.
      */
@@ -32,6 +81,64 @@ public class CSVFileHandler {
      */
     private boolean edited;
 
+    /**
+     * Az utolsó beolvasás során talált hibás sorok. Legfeljebb 100 hibát tartalmaz.
+     */
+    private List<CSVParser.ParseError> parseErrors;
+
+    /**
+     * Az utolsó beolvasás során talált hibás sorok száma.
+     */
+    private int parseErrorCount;
+
+    /**
+     * Fájl beolvasásának módja. Folyamként pufferelt olvasással, vagy a fájl memóriába leképezésével.
+     */
+    enum LoadMode{
+        stream, mmap, cache
+    }
+
+    /**
+     * A beállított beolvasási mód.
+     */
+    private LoadMode loadMode;
+
+    /**
+     * Az utolsó beolvasáskor ténylegesen használt beolvasási mód. Eltérhet a beállítottól, ha a fájl nem képezhető le.
+     */
+    private LoadMode lastLoadMode;
+
+    /**
+     * Az utolsó beolvasáskor párhuzamosan feldolgozott fájlrészek száma. 1, ha a beolvasás egy szálon történt.
+     */
+    private int lastChunks;
+
+    /**
+     * A beolvasott fájlok pillanatképeit tároló gyorsítótár. Értéke null, ha a gyorsítótár ki van kapcsolva.
+     */
+    private ParseCache cache;
+
+    /**
+     * Az utolsó beolvasás vagy mentés során feldolgozott bájtok száma. A fájl követésekor innen folytatódik az olvasás.
+     */
+    private long lastReadOffset;
+
+    /**
+     * Igaz, ha a megnyitott fájl végéhez hozzáfűzött sorokat is be kell tölteni.
+     */
+    private boolean followMode;
+
+    /**
+     * A megnyitott fájlt követő példány. Értéke null, ha a fájlt nem követjük.
+     */
+    private FileFollower follower;
+
+    /**
+     * A követett fájl csonkolása vagy újraírása esetén a fájl teljes újratöltését végző függvény.
+     * Alapértelmezetten a parseCSV függvényt hívja meg.
+     */
+    private Consumer<String> reloadAction;
+
     /**
      * Az osztály konstruktora.
      * @param canvas a kezelt vászon.
@@ -39,105 +146,655 @@ public class CSVFileHandler {
     public CSVFileHandler(CSVCanvas canvas){
         this.canvas = canvas;
         edited = false;
+        parseErrors = new ArrayList<>();
+        loadMode = Boolean.getBoolean(MMAP_PROPERTY) ? LoadMode.mmap : LoadMode.stream;
+        lastLoadMode = LoadMode.stream;
+        lastChunks = 1;
+        cache = ParseCache.fromSystemProperties();
+        reloadAction = filename -> {
+            canvas.clearObjects();
+            canvas.clearCurve();
+            parseCSV(filename);
+        };
     }
 
     /**
      * CSV file beolvasását végző függvény. A beolvasott objektumokat a kezelt vászon objects listájába helyezi el.
+     * A hibás sorokat kihagyja, ezeket sorszámukkal együtt a parseErrors listában tárolja el.
+     * mmap beolvasási módban a fájlt memóriába képezi le, és ha ez nem lehetséges, pufferelt olvasásra vált vissza.
+     * Nagy fájlokat sorhatárokhoz igazított részekre bont és párhuzamosan dolgoz fel.
      * @param filename beolvasandó file neve.
      */
     public void parseCSV(String filename){
+        CSVParser parser = new CSVParser(canvas::addObject);
         try {
-            File file = new File(filename);
-            Scanner scanner = new Scanner(file);
-            while (scanner.hasNext()) {
-                /*
-                 * BigDecimal osztály használata, a lebegőpontos értékek kezeléséből adódó pontatlantásgok kiküszöbölésére.
-                 */
-                String[] line = scanner.next().split(",");
-                BigDecimal bdX = new BigDecimal(String.valueOf(Double.parseDouble(line[0])));
-                BigDecimal bdY = new BigDecimal(String.valueOf(Double.parseDouble(line[1])));
-                bdX = bdX.setScale(8, RoundingMode.HALF_UP);
-                bdY = bdY.setScale(8, RoundingMode.HALF_UP);
-                canvas.addObject(new Item(bdX.doubleValue(), bdY.doubleValue(), Integer.parseInt(line[2])));
-            }
-            scanner.close();
+            read(filename, parser);
             edited = false;
             currentFile = filename;
             canvas.repaint();
-        } catch (FileNotFoundException e) {
+            follow();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        reportErrors(filename, parser);
+    }
+
+    /**
+     * Beolvassa a fájlt a paraméterül kapott értelmezővel, a vászon és a fájl állapotának módosítása nélkül,
+     * majd eltárolja a beolvasás módját és végét. A beolvasott sorokat fájlbeli sorrendben, a hívó szálon
+     * kapja meg az értelmező sorfogadója. Háttérszálról a {@link #newLoad(String)} által létrehozott
+     * beolvasást kell használni.
+     * @param filename beolvasandó file neve.
+     * @param parser a beolvasást végző értelmező.
+     * @throws IOException olvasási hiba esetén.
+     */
+    public void read(String filename, CSVParser parser) throws IOException {
+        LoadState state = newLoad(filename);
+        state.read(parser);
+        state.storeInCache(parser);
+        apply(state);
+    }
+
+    /**
+     * Létrehoz egy beolvasást a kezelő aktuális beállításaival (beolvasási mód, gyorsítótár, követés mód).
+     * A grafikus szálon kell hívni; a beolvasás ezután háttérszálon, a kezelő érintése nélkül futtatható.
+     * @param filename beolvasandó file neve.
+     * @return a beolvasás.
+     */
+    LoadState newLoad(String filename) {
+        return new LoadState(filename, cache, loadMode, followMode && !isCompressed(filename));
+    }
+
+    /**
+     * Eltárolja egy befejezett beolvasás módját és végét, a betöltési állapot kijelzéséhez és a fájl követéséhez.
+     * A grafikus szálon kell hívni.
+     * @param state a befejezett beolvasás.
+     */
+    void apply(LoadState state) {
+        lastLoadMode = state.mode;
+        lastChunks = state.chunks;
+        lastReadOffset = state.offset;
+    }
+
+    /**
+     * Egy fájl beolvasásának beállításai és eredménye. A beállításokat létrehozáskor rögzíti, a beolvasás pedig
+     * csak a saját mezőit írja, így háttérszálon is futhat, miközben a grafikus szál a kezelőt használja.
+     */
+    static final class LoadState {
+        /**
+         * A beolvasandó fájl neve.
+         */
+        private final String filename;
+
+        /**
+         * A használt gyorsítótár, vagy null.
+         */
+        private final ParseCache cache;
+
+        /**
+         * A beállított beolvasási mód.
+         */
+        private final LoadMode loadMode;
+
+        /**
+         * Igaz, ha a fájlt a betöltés után követni fogjuk. Ekkor a félig kiírt utolsó sort a fájl követése olvassa be,
+         * és a gyorsítótárat sem használjuk, mert a pillanatkép a fájl végét is tartalmazza.
+         */
+        private final boolean following;
+
+        /**
+         * A ténylegesen használt beolvasási mód.
+         */
+        private LoadMode mode;
+
+        /**
+         * A párhuzamosan feldolgozott fájlrészek száma.
+         */
+        private int chunks;
+
+        /**
+         * Az utolsó beolvasott sor utáni pozíció, innen folytatható a fájl követése. Követéskor ez az utolsó teljes
+         * sor vége, egyébként a beolvasott újsor nélküli utolsó sort is magában foglalja, hogy azt a később
+         * bekapcsolt követés ne olvassa be még egyszer.
+         */
+        private long offset;
+
+        /**
+         * A gyorsítótár kulcs, vagy null ha a beolvasott sorokat nem kell eltárolni.
+         */
+        private String key;
+
+        /**
+         * A gyorsítótárba kerülő, beolvasott sorok.
+         */
+        private RowBuffer rows;
+
+        /**
+         * A gyorsítótárból visszajátszott sorok száma, vagy -1 ha a fájlt nem a gyorsítótárból olvassuk.
+         * Az előrehaladás kijelzéséhez más szálról is olvassák.
+         */
+        private volatile int cachedRows;
+
+        /**
+         * Az osztály konstruktora.
+         * @param filename a beolvasandó fájl neve.
+         * @param cache a használt gyorsítótár, vagy null.
+         * @param loadMode a beállított beolvasási mód.
+         * @param following igaz, ha a fájlt a betöltés után követni fogjuk.
+         */
+        LoadState(String filename, ParseCache cache, LoadMode loadMode, boolean following) {
+            this.filename = filename;
+            this.cache = cache;
+            this.loadMode = loadMode;
+            this.following = following;
+            mode = LoadMode.stream;
+            chunks = 1;
+            cachedRows = -1;
+        }
+
+        /**
+         * Beolvassa a fájlt a paraméterül kapott értelmezővel. Ha a gyorsítótárban van a fájl pillanatképe,
+         * azt játssza vissza.
+         * @param parser a beolvasást végző értelmező.
+         * @throws IOException olvasási hiba esetén.
+         */
+        void read(CSVParser parser) throws IOException {
+            parser.setParseUnterminated(!following);
+            if (cache != null && !following) {
+                try {
+                    long size = Files.size(Paths.get(filename));
+                    key = cache.key(filename);
+                    TrackFormat.Track cached = cache.load(key);
+                    if (cached != null) {
+                        cachedRows = cached.size();
+                        mode = LoadMode.cache;
+                        offset = size;
+                        key = null;
+                        cached.replay(parser.getHandler());
+                        return;
+                    }
+                } catch (IOException | UnsupportedOperationException e) {
+                    key = null;
+                }
+            }
+
+            CSVParser.RowHandler handler = parser.getHandler();
+            if (key != null) {
+                RowBuffer snapshot = new RowBuffer(1024);
+                parser.setHandler((x, y, color) -> {
+                    snapshot.row(x, y, color);
+                    handler.row(x, y, color);
+                });
+                rows = snapshot;
+            }
+            try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+                if (isCompressed(filename)) {
+                    parser.parse(Channels.newChannel(new GZIPInputStream(Channels.newInputStream(channel), INFLATE_BUFFER)));
+                } else {
+                    load(channel, parser, this);
+                }
+            } finally {
+                parser.setHandler(handler);
+            }
+            offset = following ? parser.getCompleteBytes() : parser.getBytesConsumed();
+        }
+
+        /**
+         * Eltárolja a beolvasott sorokat a gyorsítótárban, ha a fájl hibátlan volt és nem a gyorsítótárból jött.
+         * A gyorsítótár hibája nem akadályozza a betöltést.
+         * @param parser a beolvasást végző értelmező.
+         */
+        void storeInCache(CSVParser parser) {
+            if (key == null || rows == null || parser.getErrorCount() != 0) {
+                return;
+            }
+            TrackFormat.Track track = rows.toTrack();
+            rows = null;
+            if (track == null) {
+                return;
+            }
+            try {
+                cache.store(key, track);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        /**
+         * A gyorsítótárból visszajátszott sorok számához tartozó getter. Bármely szálról hívható.
+         * @return a visszajátszott sorok száma, vagy -1 ha a fájlt nem a gyorsítótárból olvassuk.
+         */
+        int getCachedRows() {
+            return cachedRows;
+        }
+    }
+
+    /**
+     * Beolvassa a megnyitott fájlt a fájlmérethez és a beállított beolvasási módhoz illő módon.
+     * {@value #PARALLEL_THRESHOLD} bájttól, több mag esetén részenként párhuzamosan olvas (mmap módban a részeket
+     * leképezve), kisebb fájlt mmap módban ablakonként leképezve, egyébként pufferelt olvasással.
+     * @param channel a beolvasandó fájl csatornája.
+     * @param parser a beolvasást végző értelmező, ez gyűjti a hibás sorokat.
+     * @param state a beolvasás, ebbe írja a használt módot.
+     * @throws IOException olvasási hiba esetén.
+     */
+    private static void load(FileChannel channel, CSVParser parser, LoadState state) throws IOException {
+        long size = channel.size();
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        if (size >= PARALLEL_THRESHOLD && parallelism > 1) {
+            parseParallel(channel, size, parallelism, parser, state);
+        } else if (state.loadMode == LoadMode.mmap && parseMapped(channel, parser)) {
+            state.mode = LoadMode.mmap;
+        } else {
+            parser.parse(channel);
+        }
+    }
+
+    /**
+     * A fájlt sorhatárokhoz igazított részekre bontja, a részeket a közös fork-join készlet szálain dolgozza fel,
+     * majd az eredményeket fájlbeli sorrendben adja át. Az eredmény megegyezik az egy szálon történő beolvasáséval.
+     * Egyszerre legfeljebb parallelism + 1 rész van feldolgozás alatt vagy visszajátszásra várva, egy rész
+     * visszajátszása után indul a következő, így a memóriában tartott sorok mennyisége a fájlmérettől független.
+     * mmap beolvasási módban a részeket egyenként képezi le, a leképezett ablak így legfeljebb {@value #MAX_CHUNK} bájt.
+     * @param channel a beolvasandó fájl csatornája.
+     * @param size a fájl mérete.
+     * @param parallelism a rendelkezésre álló szálak száma.
+     * @param parser a hibás sorokat összegyűjtő értelmező, ennek sorfogadója kapja meg a sorokat.
+     * @param state a beolvasás, ebbe írja a használt módot és a részek számát.
+     * @throws IOException olvasási hiba esetén.
+     */
+    private static void parseParallel(FileChannel channel, long size, int parallelism, CSVParser parser,
+            LoadState state) throws IOException {
+        int chunks = (int) Math.max(1, Math.min(Math.max(parallelism * 4L, (size + MAX_CHUNK - 1) / MAX_CHUNK),
+                size / MIN_CHUNK));
+        long[] bounds = new long[chunks + 1];
+        bounds[chunks] = size;
+        for (int i = 1; i < chunks; i++) {
+            bounds[i] = nextLineStart(channel, Math.max(size * i / chunks, bounds[i - 1]), size);
+        }
+
+        boolean unterminated = parser.isParseUnterminated();
+        boolean map = state.loadMode == LoadMode.mmap;
+        int window = parallelism + 1;
+        ArrayDeque<ForkJoinTask<ChunkRows>> tasks = new ArrayDeque<>(window);
+        int submitted = 0;
+        boolean mapped = true;
+        boolean completed = false;
+        try {
+            for (int i = 0; i < chunks; i++) {
+                while (submitted < chunks && submitted < i + window) {
+                    long start = bounds[submitted];
+                    long end = bounds[submitted + 1];
+                    boolean first = submitted == 0;
+                    tasks.add(ForkJoinPool.commonPool().submit(() -> parseChunk(channel, start, end, first, unterminated, map)));
+                    submitted++;
+                }
+                ChunkRows rows = tasks.poll().get();
+                rows.replay(parser.getHandler());
+                parser.append(rows.parser);
+                mapped &= rows.mapped;
+            }
+            completed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Parallel load interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            if (!completed) {
+                tasks.forEach(t -> t.cancel(true));
+            }
+        }
+        state.mode = mapped && state.loadMode == LoadMode.mmap ? LoadMode.mmap : LoadMode.stream;
+        state.chunks = chunks;
+    }
+
+    /**
+     * Egy fájlrészt dolgoz fel egy külön értelmezővel. mmap módban a részt memóriába képezi le.
+     * @param channel a beolvasandó fájl csatornája.
+     * @param start a rész első bájtja, egy sor eleje.
+     * @param end a rész vége, egy sor vége utáni bájt.
+     * @param first igaz, ha ez a fájl első része.
+     * @param parseUnterminated igaz, ha a fájl végén lévő, újsor nélküli sort is fel kell dolgozni.
+     * @param map igaz, ha a részt memóriába kell képezni.
+     * @return a részből beolvasott sorok.
+     * @throws IOException olvasási hiba esetén.
+     */
+    private static ChunkRows parseChunk(FileChannel channel, long start, long end, boolean first,
+            boolean parseUnterminated, boolean map) throws IOException {
+        ChunkRows rows = new ChunkRows((int) Math.min((end - start) / 24 + 16, Integer.MAX_VALUE - 8));
+        CSVParser chunkParser = new CSVParser(rows);
+        chunkParser.setStartOfInput(first);
+        chunkParser.setParseUnterminated(parseUnterminated);
+        rows.parser = chunkParser;
+        if (map && end - start <= Integer.MAX_VALUE) {
+            try {
+                chunkParser.parse(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start), true);
+                rows.mapped = true;
+                return rows;
+            } catch (IOException | UnsupportedOperationException e) {
+                /*
+                 * Leképezés nélkül, pozícionált olvasással folytatjuk.
+                 */
+            }
+        }
+        chunkParser.parse(channel, start, end);
+        return rows;
+    }
+
+    /**
+     * Megkeresi a paraméterül kapott pozíciótól kezdődő első teljes sor elejét.
+     * @param channel a fájl csatornája.
+     * @param position a keresés kezdete.
+     * @param size a fájl mérete.
+     * @return a következő sor első bájtjának pozíciója, vagy a fájl mérete.
+     * @throws IOException olvasási hiba esetén.
+     */
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        if (position == 0) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        position--;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Egy párhuzamosan feldolgozott fájlrész sorait és beolvasási adatait tároló segédosztály.
+     */
+    private static class ChunkRows extends RowBuffer {
+        /**
+         * A részt feldolgozó értelmező, a hibás sorok összesítéséhez.
+         */
+        private CSVParser parser;
+
+        /**
+         * Igaz, ha a részt memóriába leképezve olvastuk be.
+         */
+        private boolean mapped;
+
+        /**
+         * Az osztály konstruktora.
+         * @param capacity a várható sorok száma.
+         */
+        ChunkRows(int capacity) {
+            super(capacity);
+        }
+    }
+
+    /**
+     * A fájlt {@value #MAP_WINDOW} bájtos ablakokban memóriába képezi le, és közvetlenül a leképezett pufferből olvas.
+     * Az ablakokat sorhatárhoz igazítja, így a fájlmérete nincs korlátozva.
+     * @param channel a beolvasandó fájl csatornája.
+     * @param parser a beolvasást végző értelmező.
+     * @return hamis, ha a fájl nem képezhető le és még semmit nem olvasott be.
+     * @throws IOException ha a leképezés a fájl közepén hiúsul meg.
+     */
+    private static boolean parseMapped(FileChannel channel, CSVParser parser) throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            return false;
+        }
+        long offset = 0;
+        while (offset < size) {
+            long length = Math.min(MAP_WINDOW, size - offset);
+            boolean last = offset + length == size;
+            MappedByteBuffer buffer;
+            try {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+            } catch (IOException | UnsupportedOperationException e) {
+                if (offset == 0) {
+                    return false;
+                }
+                throw new IOException("Mapping failed at offset " + offset, e);
+            }
+            parser.parse(buffer, last);
+            if (!last && buffer.position() == 0) {
+                if (offset == 0) {
+                    return false;
+                }
+                throw new IOException("Line longer than " + MAP_WINDOW + " bytes at offset " + offset);
+            }
+            offset += last ? length : buffer.position();
+        }
+        return true;
+    }
+
+    /**
+     * Követés módban elindítja az aktuális fájl figyelését az utolsó beolvasás végétől.
+     * A hozzáfűzött sorokból beolvasott objektumokat a grafikus szálon adja a vászonhoz,
+     * csonkolás vagy újraírás esetén a grafikus szálon egyszer meghívja az újratöltő függvényt.
+     * Grafikus szálról kell hívni.
+     */
+    public void follow() {
+        stopFollowing();
+        if (!followMode || currentFile == null || isCompressed(currentFile)) {
+            return;
+        }
+        String filename = currentFile;
+        FileFollower started = new FileFollower(filename, lastReadOffset, new FileFollower.Listener() {
+            @Override
+            public void appended(RowBuffer rows) {
+                SwingUtilities.invokeLater(() -> {
+                    if (follower != null && filename.equals(currentFile)) {
+                        rows.replay(canvas::addObject);
+                        canvas.repaint();
+                    }
+                });
+            }
+
+            @Override
+            public void reload() {
+                SwingUtilities.invokeLater(() -> {
+                    if (follower != null && filename.equals(currentFile)) {
+                        stopFollowing();
+                        reloadAction.accept(filename);
+                    }
+                });
+            }
+        });
+        try {
+            started.start();
+            follower = started;
+        } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Leállítja az aktuális fájl figyelését, ha van ilyen.
+     */
+    public void stopFollowing() {
+        if (follower != null) {
+            follower.close();
+            follower = null;
+        }
+    }
+
+    /**
+     * Megadja, hogy a fájl gzip formátumban tömörített-e.
+     * @param filename a fájl neve.
+     * @return igaz, ha a fájlnév .gz végű.
+     */
+    public static boolean isCompressed(String filename) {
+        return filename.toLowerCase().endsWith(COMPRESSED_SUFFIX);
+    }
+
+    /**
+     * Megbecsüli a fájl tartalmának méretét a betöltés előrehaladásának kijelzéséhez.
+     * Tömörített fájl esetén a gzip fájl végén tárolt, kicsomagolt méretet olvassa ki,
+     * ami 4 GB alatti, egy részből álló fájlok esetén pontos.
+     * @param filename a fájl neve.
+     * @return a beolvasandó bájtok becsült száma.
+     * @throws IOException olvasási hiba esetén.
+     */
+    public static long contentSize(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (!isCompressed(filename) || size < 4) {
+                return size;
+            }
+            ByteBuffer trailer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            while (trailer.hasRemaining() && channel.read(trailer, size - 4 + trailer.position()) > 0) {
+                /*
+                 * Olvasunk, amíg a 4 bájt meg nem érkezik.
+                 */
+            }
+            long inflated = trailer.getInt(0) & 0xFFFFFFFFL;
+            return inflated > 0 ? inflated : size;
+        }
+    }
+
+    /**
+     * Eltárolja és a hibakimenetre írja a beolvasás során talált hibás sorokat.
+     * @param filename a beolvasott fájl neve.
+     * @param parser a beolvasást végző értelmező.
+     */
+    void reportErrors(String filename, CSVParser parser) {
+        parseErrors = parser.getErrors();
+        parseErrorCount = parser.getErrorCount();
+        for (CSVParser.ParseError error: parseErrors) {
+            System.err.println(filename + ": " + error);
+        }
+        if (parseErrorCount > parseErrors.size()) {
+            System.err.println(filename + ": " + (parseErrorCount - parseErrors.size()) + " more malformed lines");
+        }
+    }
+
     /**
      * CSV file-ba mentést végző függvény. A kezelt vászon objects listájában található objektumokat menti el.
      * Minden sorba egy objektum kerül [x,y,szín] formátumban
+     * A mentés idejére leállítja a fájl követését, utána követés módban a mentett fájl végéről folytatja.
      * @param filename a menteni kívánt fájl neve.
      */
     public void saveCSV(String filename){
-        try {
-            FileWriter fileWriter = new FileWriter(filename);
-            for (Item i: canvas.getObjects()) {
-                /*
-                 * BigDecimal osztály használata, a lebegőpontos értékek kezeléséből adódó pontatlantásgok kiküszöbölésére.
-                 */
-                BigDecimal bdX = new BigDecimal(String.valueOf(i.getX()));
-                BigDecimal bdY = new BigDecimal(String.valueOf(i.getY()));
-                bdX = bdX.setScale(8, RoundingMode.HALF_UP);
-                bdY = bdY.setScale(8, RoundingMode.HALF_UP);
-                fileWriter.write(bdX.doubleValue() + "," + bdY.doubleValue() + "," + i.getColor() + System.getProperty("line.separator"));
+        stopFollowing();
+        boolean saved = false;
+        try (CSVWriter writer = CSVWriter.open(filename)) {
+            ConeStore objects = canvas.getObjects();
+            for (int i = 0; i < objects.size(); i++) {
+                writer.writeRow(objects.getFixedX(i), objects.getFixedY(i), objects.getColor(i));
             }
-            fileWriter.close();
+            writer.flush();
             edited = false;
             currentFile = filename;
+            saved = true;
         } catch (IOException e) {
             e.printStackTrace();
         }
+        if (saved) {
+            /*
+             * A fájl tartalma újraíródott, a követés az új tartalom végéről folytatódik.
+             */
+            try {
+                lastReadOffset = Files.size(Paths.get(filename));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        follow();
     }
 
     /**
      * Rendezett CSV file-ba mentést végző függvény. A kezelt vászon objects listájában található objektumokat menti el.
-     * Minden sorba egy objektum kerül [x,y,szín] formátumban
+     * Minden sorba egy objektum kerül [x,y,szín] formátumban. Ha egy szín nincs sorbarendezve (legfeljebb két objektum),
+     * annak objektumait a tárolt sorrendben írja ki.
      * @param filename a menteni kívánt fájl neve.
+     * @return igaz, ha a mentés sikeres volt.
      */
-    public void saveOrderedCSV(String filename){
-        try {
-            FileWriter fileWriter = new FileWriter(filename);
-            int[] idxBlue = canvas.getIdxBlue();
-            ArrayList<Item> blue = canvas.getBlue();
-            for (int i: idxBlue) {
-                Item item = blue.get(i);
-                BigDecimal bdX = new BigDecimal(String.valueOf(item.getX()));
-                BigDecimal bdY = new BigDecimal(String.valueOf(item.getY()));
-                bdX = bdX.setScale(8, RoundingMode.HALF_UP);
-                bdY = bdY.setScale(8, RoundingMode.HALF_UP);
-                fileWriter.write(bdX.doubleValue() + "," + bdY.doubleValue() + "," + item.getColor() + System.getProperty("line.separator"));
-            }
-            int[] idxYellow = canvas.getIdxYellow();
-            ArrayList<Item> yellow = canvas.getYellow();
-            for (int i: idxYellow) {
-                Item item = yellow.get(i);
-                BigDecimal bdX = new BigDecimal(String.valueOf(item.getX()));
-                BigDecimal bdY = new BigDecimal(String.valueOf(item.getY()));
-                bdX = bdX.setScale(8, RoundingMode.HALF_UP);
-                bdY = bdY.setScale(8, RoundingMode.HALF_UP);
-                fileWriter.write(bdX.doubleValue() + "," + bdY.doubleValue() + "," + item.getColor() + System.getProperty("line.separator"));
-            }
-            for (Item item: canvas.getObjects()) {
-                if (item.getColor() == 0 || item.getColor() == 3 || item.getColor() == 4) {
-                    BigDecimal bdX = new BigDecimal(String.valueOf(item.getX()));
-                    BigDecimal bdY = new BigDecimal(String.valueOf(item.getY()));
-                    bdX = bdX.setScale(8, RoundingMode.HALF_UP);
-                    bdY = bdY.setScale(8, RoundingMode.HALF_UP);
-                    fileWriter.write(bdX.doubleValue() + "," + bdY.doubleValue() + "," + item.getColor() + System.getProperty("line.separator"));
+    public boolean saveOrderedCSV(String filename){
+        try (CSVWriter writer = CSVWriter.open(filename)) {
+            writeOrdered(writer, canvas.getIdxBlue(), canvas.getBlue());
+            writeOrdered(writer, canvas.getIdxYellow(), canvas.getYellow());
+            ConeStore objects = canvas.getObjects();
+            for (int i = 0; i < objects.size(); i++) {
+                int color = objects.getColor(i);
+                if (color != 1 && color != 2) {
+                    writer.writeRow(objects.getFixedX(i), objects.getFixedY(i), color);
                 }
             }
-            fileWriter.close();
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Kiírja egy szín objektumait a sorrend szerint, vagy ha nincs sorrend, a tárolt sorrendben.
+     * @param writer a kimenet.
+     * @param idx a sorrend indexei, vagy null.
+     * @param items a szín objektumai.
+     * @throws IOException írási hiba esetén.
+     */
+    private static void writeOrdered(CSVWriter writer, int[] idx, ArrayList<Item> items) throws IOException {
+        for (int i = 0; i < items.size(); i++) {
+            Item item = items.get(idx != null ? idx[i] : i);
+            writer.writeRow(item.getFixedX(), item.getFixedY(), item.getColor());
+        }
+    }
+
+    /**
+     * A vászon objektumait bináris .trk formátumban menti el.
+     * @param filename a menteni kívánt fájl neve.
+     * @see TrackFormat
+     */
+    public void exportTrack(String filename){
+        ConeStore objects = canvas.getObjects();
+        long[] x = new long[objects.size()];
+        long[] y = new long[objects.size()];
+        byte[] color = new byte[objects.size()];
+        for (int i = 0; i < objects.size(); i++) {
+            x[i] = objects.getFixedX(i);
+            y[i] = objects.getFixedY(i);
+            color[i] = (byte) objects.getColor(i);
+        }
+        try {
+            TrackFormat.write(filename, new TrackFormat.Track(x, y, color));
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Bináris .trk fájlt tölt be a vászonra. A betöltött pálya nem lesz aktuális fájl,
+     * mentéskor új CSV fájlt kell választani hozzá.
+     * @param filename a beolvasandó fájl neve.
+     * @return igaz, ha a betöltés sikeres volt.
+     * @see TrackFormat
+     */
+    public boolean importTrack(String filename){
+        try {
+            TrackFormat.Track track = TrackFormat.read(filename);
+            canvas.clearObjects();
+            canvas.clearCurve();
+            track.replay(canvas::addObject);
+            edited = false;
+            currentFile = null;
+            canvas.repaint();
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
     /**
      * Fájl kiválasztáskor használandó. Eldönti, hogy megnyitásra vagy mentésre szeretnénk fájlt kiválasztani.
      */
@@ -153,29 +810,232 @@ public class CSVFileHandler {
      * @param type kiválasztás típusa (megnyitás,mentés).
      */
     public void selectFile(CSVCanvas canvas, ChooseType type) {
+        String filename = chooseFile(canvas, type);
+        if (filename == null) {
+            return;
+        }
+        if (type.equals(ChooseType.open)){
+            canvas.clearObjects();
+            canvas.clearCurve();
+            parseCSV(filename);
+            showParseErrors(canvas);
+        }
+        else if (type.equals(ChooseType.save)) {
+            saveCSV(filename);
+        }
+    }
+
+    /**
+     * Fájl kiválasztás menüt hoz elő, a kiválasztott fájlon nem végez műveletet.
+     * @param canvas a szülő komponens.
+     * @param type kiválasztás típusa (megnyitás,mentés).
+     * @return a kiválasztott fájl abszolút elérési útvonala, vagy null ha a felhasználó megszakította a kiválasztást.
+     */
+    public String chooseFile(CSVCanvas canvas, ChooseType type) {
+        return chooseFile(canvas, type, "CSV Files", "csv");
+    }
+
+    /**
+     * Fájl kiválasztás menüt hoz elő a paraméterül kapott kiterjesztésű fájlokhoz.
+     * Mentésnél, ha a kiválasztott fájlnév nem a kiterjesztésre végződik, hozzáfűzi azt.
+     * CSV fájlok esetén a gzip formátumban tömörített (.csv.gz) fájlokat is felkínálja.
+     * @param canvas a szülő komponens.
+     * @param type kiválasztás típusa (megnyitás,mentés).
+     * @param description a fájltípus leírása.
+     * @param extension a fájltípus kiterjesztése.
+     * @return a kiválasztott fájl abszolút elérési útvonala, vagy null ha a felhasználó megszakította a kiválasztást.
+     */
+    public String chooseFile(CSVCanvas canvas, ChooseType type, String description, String extension) {
         JFileChooser chooser = new JFileChooser();
-        FileNameExtensionFilter csvFilter = new FileNameExtensionFilter("CSV Files", "csv");
-        chooser.setFileFilter(csvFilter);
+        if (extension.equals("csv")) {
+            chooser.setFileFilter(new FileFilter() {
+                @Override
+                public boolean accept(File f) {
+                    String name = f.getName().toLowerCase();
+                    return f.isDirectory() || name.endsWith(".csv") || name.endsWith(".csv" + COMPRESSED_SUFFIX);
+                }
+
+                @Override
+                public String getDescription() {
+                    return description + " (*.csv, *.csv" + COMPRESSED_SUFFIX + ")";
+                }
+            });
+        } else {
+            chooser.setFileFilter(new FileNameExtensionFilter(description, extension));
+        }
         chooser.setCurrentDirectory(new File(System.getProperty("user.dir")));
 
         if (type.equals(ChooseType.open)){
             chooser.setApproveButtonText("Open");
-            if (chooser.showOpenDialog(canvas) == JFileChooser.APPROVE_OPTION) {
-                canvas.clearObjects();
-                canvas.clearCurve();
-                parseCSV(chooser.getSelectedFile().getAbsolutePath());
-            }
         }
-
         else if (type.equals(ChooseType.save)) {
             chooser.setApproveButtonText("Save");
             if (currentFile != null) {
-                chooser.setSelectedFile(new File(currentFile));
+                boolean keep = extension.equals("csv") && isCompressed(currentFile);
+                chooser.setSelectedFile(new File(keep ? currentFile : withExtension(currentFile, extension)));
             }
-            if (chooser.showOpenDialog(canvas) == JFileChooser.APPROVE_OPTION) {
-                saveCSV(chooser.getSelectedFile().getAbsolutePath());
+        }
+        if (chooser.showOpenDialog(canvas) == JFileChooser.APPROVE_OPTION) {
+            String filename = chooser.getSelectedFile().getAbsolutePath();
+            if (type.equals(ChooseType.save) && !extension.equals("csv")) {
+                filename = withExtension(filename, extension);
             }
+            return filename;
         }
+        return null;
+    }
+
+    /**
+     * A fájlnév kiterjesztését a paraméterül kapottra cseréli, ha az eltér tőle.
+     * @param filename a fájl neve.
+     * @param extension az új kiterjesztés.
+     * @return a módosított fájlnév.
+     */
+    private static String withExtension(String filename, String extension) {
+        if (filename.endsWith("." + extension)) {
+            return filename;
+        }
+        int dot = filename.lastIndexOf('.');
+        if (dot > filename.lastIndexOf(File.separatorChar)) {
+            filename = filename.substring(0, dot);
+        }
+        return filename + "." + extension;
+    }
+
+    /**
+     * Figyelmeztető ablakban jeleníti meg az utolsó beolvasás hibás sorait, ha voltak ilyenek.
+     * @param canvas a szülő komponens.
+     */
+    void showParseErrors(CSVCanvas canvas) {
+        if (parseErrorCount == 0) {
+            return;
+        }
+        StringBuilder message = new StringBuilder(parseErrorCount + " malformed lines were skipped:");
+        for (int i = 0; i < parseErrors.size() && i < 10; i++) {
+            message.append(System.lineSeparator()).append(parseErrors.get(i));
+        }
+        if (parseErrorCount > 10) {
+            message.append(System.lineSeparator()).append("...");
+        }
+        JOptionPane.showMessageDialog(canvas, message.toString(), "Malformed lines", JOptionPane.WARNING_MESSAGE);
+    }
+
+    /**
+     * Az utolsó beolvasás hibás soraihoz tartozó getter.
+     * @return a hibás sorok listája, legfeljebb 100 elemmel.
+     */
+    public List<CSVParser.ParseError> getParseErrors() {
+        return parseErrors;
+    }
+
+    /**
+     * Az utolsó beolvasás hibás sorainak számához tartozó getter.
+     * @return a hibás sorok száma.
+     */
+    public int getParseErrorCount() {
+        return parseErrorCount;
+    }
+
+    /**
+     * A beállított beolvasási módhoz tartozó getter.
+     * @return a beállított beolvasási mód.
+     */
+    public LoadMode getLoadMode() {
+        return loadMode;
+    }
+
+    /**
+     * Beállítja a beolvasási módot.
+     * @param loadMode a beállítandó beolvasási mód.
+     */
+    public void setLoadMode(LoadMode loadMode) {
+        this.loadMode = loadMode;
+    }
+
+    /**
+     * Az utolsó beolvasás módját írja le a lábléc számára, pl. "[mmap, 64 chunks]".
+     * @return a beolvasás leírása, vagy üres szöveg egyszálú, folyamként olvasó betöltés esetén.
+     */
+    public String getLoadStatus() {
+        if (lastLoadMode == LoadMode.cache) {
+            return "[cache]";
+        } else if (lastLoadMode == LoadMode.mmap && lastChunks > 1) {
+            return "[mmap, " + lastChunks + " chunks]";
+        } else if (lastLoadMode == LoadMode.mmap) {
+            return "[mmap]";
+        } else if (lastChunks > 1) {
+            return "[" + lastChunks + " chunks]";
+        }
+        return "";
+    }
+
+    /**
+     * A követés módhoz tartozó getter.
+     * @return igaz, ha a megnyitott fájl hozzáfűzött sorait is betöltjük.
+     */
+    public boolean isFollowMode() {
+        return followMode;
+    }
+
+    /**
+     * Be- vagy kikapcsolja a követés módot. Bekapcsoláskor azonnal elkezdi az aktuális fájl figyelését.
+     * @param followMode igaz, ha a megnyitott fájl hozzáfűzött sorait is be kell tölteni.
+     */
+    public void setFollowMode(boolean followMode) {
+        this.followMode = followMode;
+        if (followMode) {
+            follow();
+        } else {
+            stopFollowing();
+        }
+    }
+
+    /**
+     * Megadja, hogy éppen figyeljük-e az aktuális fájlt.
+     * @return igaz, ha fut a fájl figyelése.
+     */
+    public boolean isFollowing() {
+        return follower != null;
+    }
+
+    /**
+     * A fájl követésének kezdőpozíciójához tartozó getter.
+     * @return az utolsó beolvasás vagy mentés során feldolgozott bájtok száma.
+     */
+    long getLastReadOffset() {
+        return lastReadOffset;
+    }
+
+    /**
+     * Beállítja a követett fájl csonkolása vagy újraírása esetén hívandó újratöltő függvényt.
+     * @param reloadAction a fájl nevét kapó újratöltő függvény.
+     */
+    public void setReloadAction(Consumer<String> reloadAction) {
+        this.reloadAction = reloadAction;
+    }
+
+    /**
+     * A gyorsítótárhoz tartozó getter.
+     * @return a gyorsítótár, vagy null ha ki van kapcsolva.
+     */
+    public ParseCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Beállítja a gyorsítótárat.
+     * @param cache a használandó gyorsítótár, vagy null a gyorsítótár kikapcsolásához.
+     */
+    public void setCache(ParseCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Az utolsó beolvasáskor használt módhoz tartozó getter.
+     * @return a ténylegesen használt beolvasási mód.
+     */
+    public LoadMode getLastLoadMode() {
+        return lastLoadMode;
     }
 
     /**
@@ -19,6 +19,26 @@ public class CSVFooter extends JPanel {
      */
     private final JLabel relativeCoords;
 
+    /**
+     * A kirajzolt és az összes objektum számát kijelző címke.
+     */
+    private final JLabel drawnObjects;
+
+    /**
+     * Az utolsó fájlbetöltés módját kijelző címke. Üres, ha a szokásos, folyamként olvasó betöltés volt használva.
+     */
+    private final JLabel loadStatus;
+
+    /**
+     * A háttérben futó fájlbetöltés előrehaladását kijelző sáv. Csak betöltés közben látható.
+     */
+    private final JProgressBar loadProgress;
+
+    /**
+     * A háttérben futó fájlbetöltést megszakító gomb. Csak betöltés közben látható.
+     */
+    private final JButton cancelLoad;
+
     /**
      * A grafikus megjelenítés interakcióit tartalmazó példány.
      */
@@ -32,6 +52,10 @@ public class CSVFooter extends JPanel {
         scaleSlider = new JSlider(JSlider.HORIZONTAL, 10, 210, 110);
         scaleText = new JTextField("100");
         relativeCoords = new JLabel("x: 0    y: 0");
+        drawnObjects = new JLabel("drawn: 0 / 0");
+        loadStatus = new JLabel("");
+        loadProgress = new JProgressBar(0, 100);
+        cancelLoad = new JButton("Cancel");
         this.guiHandlers = guiHandlers;
         configure();
     }
@@ -75,10 +99,20 @@ public class CSVFooter extends JPanel {
         plus.setFocusable(false);
         plus.addActionListener(e -> guiHandlers.addScale(+0.1));
 
+        loadProgress.setStringPainted(true);
+        loadProgress.setVisible(false);
+        cancelLoad.setFocusable(false);
+        cancelLoad.setVisible(false);
+        cancelLoad.addActionListener(e -> guiHandlers.cancelLoad());
+
         add(leftFooter, BorderLayout.WEST);
         add(rightFooter, BorderLayout.EAST);
 
         leftFooter.add(relativeCoords);
+        leftFooter.add(drawnObjects);
+        leftFooter.add(loadStatus);
+        leftFooter.add(loadProgress);
+        leftFooter.add(cancelLoad);
 
         rightFooter.add(scaleText);
         rightFooter.add(minus);
@@ -119,4 +153,41 @@ public class CSVFooter extends JPanel {
     public void setRelativeCoords(String text) {
         relativeCoords.setText(text);
     }
+
+    /**
+     * Beállítja a kirajzolt és az összes objektum számát kijelző szöveget.
+     * @param drawn a kirajzolt objektumok száma.
+     * @param total az összes objektum száma.
+     */
+    public void setDrawnObjects(int drawn, int total) {
+        drawnObjects.setText("drawn: " + drawn + " / " + total);
+    }
+
+    /**
+     * Beállítja a fájlbetöltés módját kijelző szöveget.
+     * @param text a beállítandó szöveg.
+     */
+    public void setLoadStatus(String text) {
+        loadStatus.setText(text);
+    }
+
+    /**
+     * Megjeleníti és beállítja a fájlbetöltés előrehaladását kijelző elemeket.
+     * @param percent a betöltött rész százalékban.
+     * @param text a betöltés állapotát leíró szöveg.
+     */
+    public void showLoadProgress(int percent, String text) {
+        loadStatus.setText(text);
+        loadProgress.setValue(percent);
+        loadProgress.setVisible(true);
+        cancelLoad.setVisible(true);
+    }
+
+    /**
+     * Elrejti a fájlbetöltés előrehaladását kijelző elemeket.
+     */
+    public void hideLoadProgress() {
+        loadProgress.setVisible(false);
+        cancelLoad.setVisible(false);
+    }
 }
@@ -0,0 +1,258 @@
+package com.zalandemeter;
+
+import javax.swing.*;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * CSV fájlt háttérszálon betöltő osztály. A beolvasott objektumokat csomagokban egy új tárolóba teszi, amit betöltés
+ * közben a vászon mutat, így a térkép fokozatosan rajzolódik ki, és a grafikus felület nem fagy le.
+ * Megszakítás vagy hiba esetén a vászon előző objektumait és íveit állítja vissza.
+ * A háttérszál csak a saját beolvasását ({@link CSVFileHandler.LoadState}) írja, a fájlkezelő állapotát
+ * (aktuális fájl, szerkesztettség, beolvasási mód, követés) csak a sikeres betöltés végén, a grafikus szálon állítja be.
+ * @author zalandemeter
+ */
+public class CSVLoadWorker extends SwingWorker<CSVParser, Integer> implements CSVParser.RowHandler {
+
+    /**
+     * Egy átadott csomagban lévő objektumok száma.
+     */
+    private static final int BATCH_SIZE = 8192;
+
+    /**
+     * Ennyi beolvasott soronként ellenőrzi a megszakítást.
+     */
+    private static final int CANCEL_CHECK = 1024;
+
+    /**
+     * Két újrarajzolás között eltelt minimális idő ezredmásodpercben.
+     */
+    private static final long REPAINT_INTERVAL = 100;
+
+    /**
+     * A kezelendő grafikus megjelenítőt tárolja.
+     */
+    private final GUI gui;
+
+    /**
+     * A betöltendő fájl abszolút elérési útvonala.
+     */
+    private final String filename;
+
+    /**
+     * A betöltést végző értelmező.
+     */
+    private final CSVParser parser;
+
+    /**
+     * A beolvasás, a fájlkezelő beállításaival a grafikus szálon létrehozva.
+     */
+    private final CSVFileHandler.LoadState state;
+
+    /**
+     * Az új tároló, amibe a beolvasott objektumok kerülnek.
+     */
+    private final ConeStore store;
+
+    /**
+     * A vászon betöltés előtti objektumai és ívei.
+     */
+    private final CSVCanvas.Contents previous;
+
+    /**
+     * A háttérszálon beolvasott sorok száma, a gyorsítótárból betöltött fájl előrehaladásának kijelzéséhez.
+     */
+    private int rowsRead;
+
+    /**
+     * A betöltés kezdetének ideje nanoszekundumban.
+     */
+    private final long startTime;
+
+    /**
+     * A betöltendő fájl mérete bájtokban, az előrehaladás kijelzéséhez.
+     */
+    private long fileSize;
+
+    /**
+     * A háttérszálon gyűjtött, még át nem adott objektumok.
+     */
+    private RowBuffer batch;
+
+    /**
+     * A grafikus szálnak átadott, de a vászonhoz még hozzá nem adott csomagok.
+     * Saját sor, hogy a done() függvény az esetleg késve feldolgozott csomagokat is hozzáadhassa.
+     */
+    private final ConcurrentLinkedQueue<RowBuffer> pending;
+
+    /**
+     * A vászonhoz már hozzáadott objektumok száma.
+     */
+    private int loaded;
+
+    /**
+     * Az utolsó újrarajzolás ideje ezredmásodpercben.
+     */
+    private long lastRepaint;
+
+    /**
+     * Az osztály konstruktora. A grafikus szálon kell hívni. A vászonra az új, üres tárolót teszi.
+     * @param gui a kezelt grafikus megjelenítő.
+     * @param filename a betöltendő fájl abszolút elérési útvonala.
+     */
+    public CSVLoadWorker(GUI gui, String filename) {
+        this.gui = gui;
+        this.filename = filename;
+        parser = new CSVParser(this);
+        state = gui.getCsvFileHandler().newLoad(filename);
+        store = ConeStore.create();
+        previous = gui.getCanvas().replaceObjects(store);
+        batch = new RowBuffer(BATCH_SIZE);
+        pending = new ConcurrentLinkedQueue<>();
+        startTime = System.nanoTime();
+    }
+
+    /**
+     * Háttérszálon beolvassa a fájlt, és ha a betöltést nem szakították meg, eltárolja a gyorsítótárban.
+     * @return a beolvasást végző értelmező, a hibás sorok kijelzéséhez.
+     * @throws IOException olvasási hiba esetén.
+     */
+    @Override
+    protected CSVParser doInBackground() throws IOException {
+        fileSize = Math.max(CSVFileHandler.contentSize(filename), 1);
+        state.read(parser);
+        if (isCancelled()) {
+            throw new CancellationException();
+        }
+        state.storeInCache(parser);
+        pending.add(batch);
+        return parser;
+    }
+
+    /**
+     * A beolvasott sort a következő csomaghoz adja. Megtelt csomag esetén átadja azt a grafikus szálnak.
+     * Megszakítás esetén kivétellel leállítja a beolvasást.
+     * @param x X koordináta 1e-8 egységekben.
+     * @param y Y koordináta 1e-8 egységekben.
+     * @param color színkód.
+     */
+    @Override
+    public void row(long x, long y, int color) {
+        batch.row(x, y, color);
+        rowsRead++;
+        if (rowsRead % CANCEL_CHECK == 0 && isCancelled()) {
+            throw new CancellationException();
+        }
+        if (batch.size() == BATCH_SIZE) {
+            pending.add(batch);
+            batch = new RowBuffer(BATCH_SIZE);
+            int cachedRows = state.getCachedRows();
+            setProgress((int) Math.min(100, cachedRows > 0 ? rowsRead * 100L / cachedRows
+                    : parser.getBytesConsumed() * 100 / fileSize));
+            publish(BATCH_SIZE);
+        }
+    }
+
+    /**
+     * A grafikus szálon hozzáadja az átadott csomagokat a vászonhoz.
+     * Legfeljebb {@value #REPAINT_INTERVAL} ezredmásodpercenként rajzolja újra a vásznat és frissíti a láblécet.
+     * @param counts az átadott csomagok mérete, csak jelzésként használjuk.
+     */
+    @Override
+    protected void process(List<Integer> counts) {
+        if (isCancelled()) {
+            return;
+        }
+        drainPending();
+        long now = System.currentTimeMillis();
+        if (now - lastRepaint >= REPAINT_INTERVAL) {
+            lastRepaint = now;
+            gui.getCanvas().repaint();
+            gui.getFooter().showLoadProgress(getProgress(), loaded + " rows, " + getRowsPerSecond() + " rows/s");
+        }
+    }
+
+    /**
+     * A betöltés végén, a grafikus szálon hívódik meg. Sikeres betöltés esetén felszabadítja az előző objektumokat
+     * és beállítja az aktuális fájlt, megszakítás vagy hiba esetén visszaállítja az előző fájlt.
+     */
+    @Override
+    protected void done() {
+        CSVFileHandler csvFileHandler = gui.getCsvFileHandler();
+        CSVCanvas canvas = gui.getCanvas();
+        gui.getFooter().hideLoadProgress();
+        if (isCancelled()) {
+            restorePrevious("Loading cancelled");
+            return;
+        }
+        try {
+            get();
+            drainPending();
+            previous.getObjects().release();
+            csvFileHandler.apply(state);
+            csvFileHandler.setEdited(false);
+            csvFileHandler.setCurrentFile(filename);
+            csvFileHandler.reportErrors(filename, parser);
+            gui.getFrame().setTitle("CSV Editor - " + filename);
+            gui.getFooter().setLoadStatus(loaded + " rows, " + getRowsPerSecond() + " rows/s "
+                    + csvFileHandler.getLoadStatus());
+            canvas.repaint();
+            csvFileHandler.follow();
+            csvFileHandler.showParseErrors(canvas);
+        } catch (ExecutionException e) {
+            e.getCause().printStackTrace();
+            restorePrevious("Loading failed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Visszaállítja a vászon betöltés előtti objektumait és íveit, az új tárolót felszabadítja.
+     * Az előző fájl állapota nem változott, csak a követését indítja újra.
+     * @param status a láblécen megjelenő üzenet.
+     */
+    private void restorePrevious(String status) {
+        CSVFileHandler csvFileHandler = gui.getCsvFileHandler();
+        CSVCanvas canvas = gui.getCanvas();
+        canvas.restoreObjects(previous);
+        store.release();
+        String currentFile = csvFileHandler.getCurrentFile();
+        gui.getFrame().setTitle(currentFile != null ? "CSV Editor - " + currentFile : "CSV Editor");
+        gui.getFooter().setLoadStatus(status);
+        canvas.repaint();
+        csvFileHandler.follow();
+    }
+
+    /**
+     * Az átadott csomagokat az új tárolóhoz adja.
+     */
+    private void drainPending() {
+        RowBuffer chunk;
+        while ((chunk = pending.poll()) != null) {
+            store.ensureCapacity(store.size() + chunk.size());
+            chunk.replay(store::addFixed);
+            loaded += chunk.size();
+        }
+    }
+
+    /**
+     * A betöltés sebességét számolja.
+     * @return a vászonhoz adott sorok száma másodpercenként.
+     */
+    private long getRowsPerSecond() {
+        long elapsed = Math.max(System.nanoTime() - startTime, 1);
+        return loaded * 1_000_000_000L / elapsed;
+    }
+
+    /**
+     * A betöltendő fájlhoz tartozó getter.
+     * @return a betöltendő fájl abszolút elérési útvonala.
+     */
+    public String getFilename() {
+        return filename;
+    }
+}
@@ -61,6 +61,10 @@ public class CSVMenuBar extends JMenuBar {
         JMenuItem save = new JMenuItem("Save");
         JMenuItem saveAs = new JMenuItem("Save as");
         JMenuItem newFile = new JMenuItem("New");
+        JMenuItem importTrack = new JMenuItem("Import track");
+        JMenuItem exportTrack = new JMenuItem("Export track");
+        JMenuItem clearCache = new JMenuItem("Clear cache");
+        JCheckBoxMenuItem followFile = new JCheckBoxMenuItem("Follow file");
 
         JMenu editMenu = new JMenu("Edit");
         JMenuItem add = new JMenuItem("Add");
@@ -97,6 +101,18 @@ public class CSVMenuBar extends JMenuBar {
         saveAs.setActionCommand("save as");
         saveAs.addActionListener(e -> guiHandlers.saveFileAs());
 
+        importTrack.setActionCommand("import track");
+        importTrack.addActionListener(e -> guiHandlers.importTrack());
+
+        exportTrack.setActionCommand("export track");
+        exportTrack.addActionListener(e -> guiHandlers.exportTrack());
+
+        clearCache.setActionCommand("clear cache");
+        clearCache.addActionListener(e -> guiHandlers.clearCache());
+
+        followFile.setActionCommand("follow file");
+        followFile.addActionListener(e -> followFile.setSelected(guiHandlers.setFollowFile(followFile.isSelected())));
+
         /*
          * EDIT-SUBMENU
          */
@@ -152,6 +168,12 @@ public class CSVMenuBar extends JMenuBar {
         fileMenu.add(save);
         fileMenu.add(saveAs);
         fileMenu.add(newFile);
+        fileMenu.addSeparator();
+        fileMenu.add(importTrack);
+        fileMenu.add(exportTrack);
+        fileMenu.addSeparator();
+        fileMenu.add(followFile);
+        fileMenu.add(clearCache);
 
         editMenu.add(add);
         editMenu.add(delete);
@@ -1,10 +1,9 @@
 package com.zalandemeter;
 
+import java.awt.*;
 import java.awt.event.*;
 import java.awt.geom.NoninvertibleTransformException;
 import java.awt.geom.Point2D;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 
 /**
  * A program bemeneteként kezelt egérrel kapcsolatos műveleteket megvalósító osztály.
@@ -32,6 +31,21 @@ public class CSVMouseListener implements MouseListener, MouseMotionListener, Mou
      */
     private Item selected;
 
+    /**
+     * Igaz, ha a láblécen már van kijelzett koordináta.
+     */
+    private boolean coordsShown;
+
+    /**
+     * A láblécen kijelzett X koordináta.
+     */
+    private int shownX;
+
+    /**
+     * A láblécen kijelzett Y koordináta.
+     */
+    private int shownY;
+
     /**
      * Az osztály konstruktora.
      * @param _gui a kezelt grafikus megjelenítő.
@@ -43,7 +57,7 @@ public class CSVMouseListener implements MouseListener, MouseMotionListener, Mou
     /**
      * Az egér lenyomásakor meghívott függvény.
      * Kitörli az aktuálisan kijelölt objektumot.
-     * Ha le van nyomva a shift beállítja az újonnan kijelölt objektumot.
+     * Ha le van nyomva a shift kijelöli a kattintáshoz legközelebbi, a kattintás helyét lefedő objektumot.
      * @param eventPoint az egér eseményhez tartozó koordináta pár.
      * @param shiftDown le van e nyomva a SHIFT billentyű.
      */
@@ -60,15 +74,17 @@ public class CSVMouseListener implements MouseListener, MouseMotionListener, Mou
         if (shiftDown) {
             try {
                 Point2D relative = gui.getCanvas().getAt().inverseTransform(eventPoint, null);
-                for (Item i : gui.getCanvas().getObjects()) {
-                    if (Item.getDistance(relative.getX(),relative.getY(),i.getX()*Item.getObjectDistance(),i.getY()*Item.getObjectDistance()) < Item.getObjectSize()/2.0) {
-                        if (selected != null){
-                            selected.setSelected(false);
-                        }
-                        selected = i;
-                        selected.setSelected(true);
-                        gui.getMenuBar().getSpinnerColor().setValue(gui.getMenuBar().getSpinnerTypes()[selected.getColor()]);
-                    }
+                ConeStore objects = gui.getCanvas().getObjects();
+                /*
+                 * A kattintás helyét és a kirajzolt objektum sugarát a koordinátarendszer egységeibe számoljuk át,
+                 * és a térbeli indexben a kattintáshoz legközelebbi objektumot keressük.
+                 */
+                int index = objects.nearest(relative.getX()/Item.getObjectDistance(),
+                        relative.getY()/Item.getObjectDistance(), Item.getObjectSize()/2.0/Item.getObjectDistance());
+                if (index >= 0) {
+                    selected = objects.get(index);
+                    selected.setSelected(true);
+                    gui.getMenuBar().getSpinnerColor().setValue(gui.getMenuBar().getSpinnerTypes()[selected.getColor()]);
                 }
             } catch (NoninvertibleTransformException noninvertibleTransformException) {
                 noninvertibleTransformException.printStackTrace();
@@ -85,13 +101,15 @@ public class CSVMouseListener implements MouseListener, MouseMotionListener, Mou
         Point2D eventPoint = e.getPoint();
         boolean shiftDown = e.isShiftDown();
         handlePressed(eventPoint,shiftDown);
-        gui.getCanvas().repaint();
+        gui.getFrameScheduler().requestRepaint();
     }
 
     /**
      * Az egér kattintás húzásakor meghívott függvény.
      * Ha nincs lenyomva a SHIFT eltolja a vásznat a megfelelő irányba.
      * Ha le van nyomva a SHIFT akkor a kijelölt pontot átmozhatja a megfelelő koordinátákra.
+     * Az újrarajzolást az ütemezőnél kéri: objektum mozgatásakor csak az objektum régi és új helyét,
+     * a vászon eltolásakor a teljes vásznat.
      * @param eventPoint az egér eseményhez tartozó koordináta pár.
      * @param shiftDown le van e nyomva a SHIFT billentyű.
      */
@@ -102,17 +120,25 @@ public class CSVMouseListener implements MouseListener, MouseMotionListener, Mou
         referenceY = eventPoint.getY();
         if (shiftDown) {
             if (selected != null){
+                CSVCanvas canvas = gui.getCanvas();
+                Rectangle dirty = canvas.getRepaintBounds(selected.getX(), selected.getY());
                 deltaX /= Item.getObjectDistance();
                 deltaY /= Item.getObjectDistance();
                 selected.setX(selected.getX()+deltaX);
                 selected.setY(selected.getY()+deltaY);
                 gui.getCsvFileHandler().setEdited(true);
-                gui.getCanvas().clearCurve();
+                if (canvas.getIdxBlue() != null || canvas.getIdxYellow() != null) {
+                    canvas.clearCurve();
+                    gui.getFrameScheduler().requestRepaint();
+                } else {
+                    gui.getFrameScheduler().requestRepaint(dirty.union(canvas.getRepaintBounds(selected.getX(), selected.getY())));
+                }
             }
-            setRelativeCoords(eventPoint);
+            gui.getFrameScheduler().requestCoords(eventPoint);
         } else {
             gui.getCanvas().setTranslateX(gui.getCanvas().getTranslateX() + deltaX);
             gui.getCanvas().setTranslateY(gui.getCanvas().getTranslateY() + deltaY);
+            gui.getFrameScheduler().requestRepaint();
         }
     }
 
@@ -125,17 +151,25 @@ public class CSVMouseListener implements MouseListener, MouseMotionListener, Mou
         Point2D eventPoint = e.getPoint();
         boolean shiftDown = e.isShiftDown();
         handleDragged(eventPoint,shiftDown);
-        gui.getCanvas().repaint();
     }
 
     /**
      * Beállítja a grafikus megjelenítésen az egérmutatóhoz tartozó koordináta értékek kijelzését.
+     * A szöveget csak akkor állítja elő, ha a kijelzett egész értékek megváltoztak.
      * @param eventPoint
      */
     public void setRelativeCoords(Point2D eventPoint){
         try {
             Point2D relative = gui.getCanvas().getAt().inverseTransform(eventPoint, null);
-            gui.getFooter().setRelativeCoords("x: " + (int)relative.getX() + "    y: " + (int)relative.getY());
+            int x = (int)relative.getX();
+            int y = (int)relative.getY();
+            if (coordsShown && x == shownX && y == shownY) {
+                return;
+            }
+            coordsShown = true;
+            shownX = x;
+            shownY = y;
+            gui.getFooter().setRelativeCoords("x: " + x + "    y: " + y);
         } catch (NoninvertibleTransformException | NullPointerException exception) {
             exception.printStackTrace();
         }
@@ -148,7 +182,7 @@ public class CSVMouseListener implements MouseListener, MouseMotionListener, Mou
     @Override
     public void mouseMoved(MouseEvent e) {
         Point2D eventPoint = e.getPoint();
-        setRelativeCoords(eventPoint);
+        gui.getFrameScheduler().requestCoords(eventPoint);
     }
 
     /**
@@ -161,17 +195,15 @@ public class CSVMouseListener implements MouseListener, MouseMotionListener, Mou
         if (!shiftDown) {
             if (mouseWheelRotation > 0) {
                 if(gui.getCanvas().getScale()>=0.2){
-                    BigDecimal bd = new BigDecimal(Double.toString(gui.getCanvas().getScale()-0.1));
-                    bd = bd.setScale(2, RoundingMode.HALF_UP);
-                    gui.getCanvas().setScale(bd.doubleValue());
-                    gui.getFooter().setScale(bd.doubleValue());
+                    double scale = Math.round((gui.getCanvas().getScale()-0.1) * 100) / 100.0;
+                    gui.getCanvas().setScale(scale);
+                    gui.getFooter().setScale(scale);
                 }
             } else {
                 if(gui.getCanvas().getScale()<=2.0){
-                    BigDecimal bd = new BigDecimal(Double.toString(gui.getCanvas().getScale()+0.1));
-                    bd = bd.setScale(2, RoundingMode.HALF_UP);
-                    gui.getCanvas().setScale(bd.doubleValue());
-                    gui.getFooter().setScale(bd.doubleValue());
+                    double scale = Math.round((gui.getCanvas().getScale()+0.1) * 100) / 100.0;
+                    gui.getCanvas().setScale(scale);
+                    gui.getFooter().setScale(scale);
                 }
             }
         }
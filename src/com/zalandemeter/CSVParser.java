@@ -0,0 +1,636 @@
+package com.zalandemeter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bájt szinten dolgozó CSV értelmező. A sorokat közvetlenül a bemeneti pufferből olvassa, köztes String objektumok nélkül.
+ * A koordinátákat 8 tizedesjegyre, HALF_UP szabály szerint kerekíti, és fixpontos egész számként (1e-8 egységekben) adja át.
+ * A hibás sorokat sorszámmal együtt gyűjti, a betöltést nem szakítja meg miattuk.
+ * @author zalandemeter
+ */
+public class CSVParser {
+
+    /**
+     * A fájlformátumban használt tizedesjegyek száma.
+     */
+    public static final int DECIMALS = 8;
+
+    /**
+     * A fixpontos ábrázolás skálája, 10^{@value #DECIMALS}.
+     */
+    public static final long SCALE = 100_000_000L;
+
+    /**
+     * Az alapértelmezett olvasási puffer mérete bájtokban.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Legfeljebb ennyi hibát tárol el részletesen, a többit csak megszámolja.
+     */
+    private static final int MAX_ERRORS = 100;
+
+    /**
+     * Egy mezőben eltárolt értékes jegyek maximális száma, hogy a mantissza ne csorduljon túl.
+     */
+    private static final int MAX_DIGITS = 18;
+
+    /**
+     * 10 hatványai a kerekítéshez.
+     */
+    private static final long[] POW10 = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L,
+            10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L, 10_000_000_000_000L, 100_000_000_000_000L,
+            1_000_000_000_000_000L, 10_000_000_000_000_000L, 100_000_000_000_000_000L, 1_000_000_000_000_000_000L
+    };
+
+    /**
+     * A beolvasott sorokat fogadó interfész.
+     */
+    public interface RowHandler {
+        /**
+         * Egy helyesen beolvasott sor feldolgozása.
+         * @param x X koordináta 1e-8 egységekben.
+         * @param y Y koordináta 1e-8 egységekben.
+         * @param color színkód.
+         */
+        void row(long x, long y, int color);
+    }
+
+    /**
+     * Egy hibás sor leírása.
+     */
+    public static class ParseError {
+        /**
+         * A hibás sor sorszáma, 1-től számozva.
+         */
+        private final int line;
+
+        /**
+         * A hiba oka.
+         */
+        private final String message;
+
+        /**
+         * Az osztály konstruktora.
+         * @param line a hibás sor sorszáma.
+         * @param message a hiba oka.
+         */
+        public ParseError(int line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        /**
+         * A sorszámhoz tartozó getter.
+         * @return a hibás sor sorszáma.
+         */
+        public int getLine() {
+            return line;
+        }
+
+        /**
+         * A hiba okához tartozó getter.
+         * @return a hiba oka.
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "line " + line + ": " + message;
+        }
+    }
+
+    /**
+     * A beolvasott sorokat fogadó példány.
+     */
+    private RowHandler handler;
+
+    /**
+     * Az eltárolt hibák listája.
+     */
+    private final ArrayList<ParseError> errors;
+
+    /**
+     * Az összes hibás sor száma.
+     */
+    private int errorCount;
+
+    /**
+     * Az eddig feldolgozott sorok száma, üres sorokkal együtt.
+     */
+    private int lineCount;
+
+    /**
+     * Az eddig helyesen beolvasott sorok száma.
+     */
+    private int rowCount;
+
+    /**
+     * Az eddig feldolgozott, teljes sorokhoz tartozó bájtok száma. A betöltés előrehaladásának kijelzéséhez.
+     */
+    private long bytesConsumed;
+
+    /**
+     * Az utolsó újsor karakterig feldolgozott bájtok száma. A bemenet végén lévő, újsor nélküli sort nem tartalmazza,
+     * a fájl követése innen folytatható.
+     */
+    private long completeBytes;
+
+    /**
+     * Igaz, ha a bemenet végén lévő, újsor nélküli sort is fel kell dolgozni. Hamis esetén a félig kiírt
+     * utolsó sort a bemenetben hagyja.
+     */
+    private boolean parseUnterminated;
+
+    /**
+     * Az utoljára beolvasott mező értéke. Azért mező, hogy a számok értelmezése ne foglaljon memóriát.
+     */
+    private long value;
+
+    /**
+     * Az utolsó mező értelmezésekor fellépett hiba oka, vagy null.
+     */
+    private String failure;
+
+    /**
+     * Igaz, ha a feldolgozott bájtok a bemenet elején kezdődnek. Csak ekkor ugorja át az UTF-8 BOM jelölést.
+     */
+    private boolean startOfInput;
+
+    /**
+     * Az osztály konstruktora.
+     * @param handler a beolvasott sorokat fogadó példány.
+     */
+    public CSVParser(RowHandler handler) {
+        this.handler = handler;
+        errors = new ArrayList<>();
+        startOfInput = true;
+        parseUnterminated = true;
+    }
+
+    /**
+     * Beolvassa a teljes csatornát. A csatornát nem zárja le.
+     * @param channel az olvasandó csatorna.
+     * @throws IOException olvasási hiba esetén.
+     */
+    public void parse(ReadableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        boolean eof = false;
+        while (!eof) {
+            eof = channel.read(buffer) == -1;
+            buffer.flip();
+            parse(buffer, eof);
+            if (!eof && buffer.position() == 0 && buffer.limit() == buffer.capacity()) {
+                /*
+                 * A puffernél hosszabb sor esetén megnöveljük a puffert.
+                 */
+                ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                larger.put(buffer);
+                buffer = larger;
+            } else {
+                buffer.compact();
+            }
+        }
+    }
+
+    /**
+     * Beolvassa a fájl [start, end) bájttartományát pozícionált olvasással. A csatorna pozícióját nem módosítja,
+     * így ugyanazon a csatornán több szál is olvashat egyszerre.
+     * @param channel az olvasandó fájl csatornája.
+     * @param start a tartomány első bájtja.
+     * @param end a tartomány vége.
+     * @throws IOException olvasási hiba esetén.
+     */
+    public void parse(FileChannel channel, long start, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, Math.max(end - start, 1)));
+        long position = start;
+        boolean last = false;
+        while (!last) {
+            if (buffer.remaining() > end - position) {
+                buffer.limit(buffer.position() + (int) (end - position));
+            }
+            int read = channel.read(buffer, position);
+            if (read > 0) {
+                position += read;
+            }
+            last = read == -1 || position >= end;
+            buffer.flip();
+            parse(buffer, last);
+            if (!last && buffer.position() == 0 && buffer.limit() == buffer.capacity()) {
+                ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                larger.put(buffer);
+                buffer = larger;
+            } else {
+                buffer.compact();
+            }
+        }
+    }
+
+    /**
+     * Hozzáadja egy részbemenetet feldolgozó értelmező statisztikáit ehhez az értelmezőhöz.
+     * A részbemenet hibáinak sorszámát az eddig feldolgozott sorok számával eltolja,
+     * így a hibák a teljes fájlra vonatkozó sorszámot kapják.
+     * @param chunk a bemenet következő részét feldolgozó értelmező.
+     */
+    public void append(CSVParser chunk) {
+        for (ParseError error: chunk.errors) {
+            if (errors.size() < MAX_ERRORS) {
+                errors.add(new ParseError(lineCount + error.getLine(), error.getMessage()));
+            }
+        }
+        errorCount += chunk.errorCount;
+        lineCount += chunk.lineCount;
+        rowCount += chunk.rowCount;
+        completeBytes = bytesConsumed + chunk.completeBytes;
+        bytesConsumed += chunk.bytesConsumed;
+    }
+
+    /**
+     * Feldolgozza a puffer pozíciója és határa közötti teljes sorokat.
+     * A puffer pozícióját az első fel nem dolgozott bájtra állítja.
+     * @param buffer az olvasandó puffer.
+     * @param last igaz, ha a puffer a bemenet végét tartalmazza, ekkor az újsor nélküli utolsó sort is feldolgozza,
+     * hacsak ezt a {@link #setParseUnterminated(boolean)} ki nem kapcsolta.
+     */
+    public void parse(ByteBuffer buffer, boolean last) {
+        int start = buffer.position();
+        int limit = buffer.limit();
+        for (int i = start; i < limit; i++) {
+            if (buffer.get(i) == '\n') {
+                bytesConsumed += i + 1 - start;
+                completeBytes = bytesConsumed;
+                parseLine(buffer, start, i);
+                start = i + 1;
+            }
+        }
+        if (last && start < limit && parseUnterminated) {
+            bytesConsumed += limit - start;
+            parseLine(buffer, start, limit);
+            start = limit;
+        }
+        buffer.position(start);
+    }
+
+    /**
+     * Egy sor feldolgozása. Az üres sorokat átugorja, a hibás sorokat feljegyzi.
+     * @param buffer a sort tartalmazó puffer.
+     * @param start a sor első bájtja.
+     * @param end a sor vége (az újsor karakter, vagy a puffer határa).
+     */
+    private void parseLine(ByteBuffer buffer, int start, int end) {
+        lineCount++;
+        if (lineCount == 1 && startOfInput && end - start >= 3 && (buffer.get(start) & 0xFF) == 0xEF
+                && (buffer.get(start + 1) & 0xFF) == 0xBB && (buffer.get(start + 2) & 0xFF) == 0xBF) {
+            start += 3;
+        }
+        while (end > start && isBlank(buffer.get(end - 1))) {
+            end--;
+        }
+        int p = skipBlank(buffer, start, end);
+        if (p == end) {
+            return;
+        }
+
+        p = parseFixed(buffer, p, end);
+        if (p < 0 || (p = expectComma(buffer, p, end)) < 0) {
+            error(failure != null ? failure : "missing y coordinate", "x");
+            return;
+        }
+        long x = value;
+
+        p = parseFixed(buffer, p, end);
+        if (p < 0 || (p = expectComma(buffer, p, end)) < 0) {
+            error(failure != null ? failure : "missing color", "y");
+            return;
+        }
+        long y = value;
+
+        p = parseInt(buffer, p, end);
+        if (p < 0) {
+            error(failure, "color");
+            return;
+        }
+        if (value < Byte.MIN_VALUE || value > Byte.MAX_VALUE) {
+            error("value out of range", "color");
+            return;
+        }
+        p = skipBlank(buffer, p, end);
+        if (p < end && buffer.get(p) != ',') {
+            error("unexpected character", "color");
+            return;
+        }
+
+        rowCount++;
+        handler.row(x, y, (int) value);
+    }
+
+    /**
+     * Fixpontos számot olvas be, 8 tizedesjegyre kerekítve. Az eredményt a value mezőbe írja.
+     * Elfogadja a Double.toString által előállított exponenciális alakot is.
+     * @param buffer a puffer.
+     * @param p a mező kezdete.
+     * @param end a sor vége.
+     * @return a mező utáni pozíció, vagy -1 hiba esetén.
+     */
+    private int parseFixed(ByteBuffer buffer, int p, int end) {
+        failure = null;
+        p = skipBlank(buffer, p, end);
+        boolean negative = false;
+        if (p < end && (buffer.get(p) == '-' || buffer.get(p) == '+')) {
+            negative = buffer.get(p) == '-';
+            p++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean any = false;
+        boolean point = false;
+        while (p < end) {
+            byte c = buffer.get(p);
+            if (c >= '0' && c <= '9') {
+                any = true;
+                if (digits < MAX_DIGITS) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (mantissa != 0) {
+                        digits++;
+                    }
+                    if (point) {
+                        scale++;
+                    }
+                } else if (!point) {
+                    scale--;
+                }
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+            p++;
+        }
+        if (!any) {
+            failure = "not a number";
+            return -1;
+        }
+
+        if (p < end && (buffer.get(p) == 'e' || buffer.get(p) == 'E')) {
+            p++;
+            boolean negativeExp = false;
+            if (p < end && (buffer.get(p) == '-' || buffer.get(p) == '+')) {
+                negativeExp = buffer.get(p) == '-';
+                p++;
+            }
+            int exponent = 0;
+            boolean anyExp = false;
+            while (p < end && buffer.get(p) >= '0' && buffer.get(p) <= '9') {
+                anyExp = true;
+                if (exponent < 1000) {
+                    exponent = exponent * 10 + (buffer.get(p) - '0');
+                }
+                p++;
+            }
+            if (!anyExp) {
+                failure = "malformed exponent";
+                return -1;
+            }
+            scale += negativeExp ? exponent : -exponent;
+        }
+
+        long result;
+        if (mantissa == 0) {
+            result = 0;
+        } else if (scale <= DECIMALS) {
+            int shift = DECIMALS - scale;
+            if (shift >= POW10.length || mantissa > Long.MAX_VALUE / POW10[shift]) {
+                failure = "value out of range";
+                return -1;
+            }
+            result = mantissa * POW10[shift];
+        } else {
+            int drop = scale - DECIMALS;
+            if (drop >= POW10.length) {
+                result = 0;
+            } else {
+                long divisor = POW10[drop];
+                result = mantissa / divisor;
+                long remainder = mantissa - result * divisor;
+                if (remainder >= divisor - remainder) {
+                    result++;
+                }
+            }
+        }
+        value = negative ? -result : result;
+        return p;
+    }
+
+    /**
+     * Egész számot olvas be. Az eredményt a value mezőbe írja.
+     * @param buffer a puffer.
+     * @param p a mező kezdete.
+     * @param end a sor vége.
+     * @return a mező utáni pozíció, vagy -1 hiba esetén.
+     */
+    private int parseInt(ByteBuffer buffer, int p, int end) {
+        failure = null;
+        p = skipBlank(buffer, p, end);
+        boolean negative = false;
+        if (p < end && (buffer.get(p) == '-' || buffer.get(p) == '+')) {
+            negative = buffer.get(p) == '-';
+            p++;
+        }
+        long result = 0;
+        boolean any = false;
+        while (p < end && buffer.get(p) >= '0' && buffer.get(p) <= '9') {
+            any = true;
+            result = result * 10 + (buffer.get(p) - '0');
+            if (result > Integer.MAX_VALUE) {
+                failure = "value out of range";
+                return -1;
+            }
+            p++;
+        }
+        if (!any) {
+            failure = "not an integer";
+            return -1;
+        }
+        value = negative ? -result : result;
+        return p;
+    }
+
+    /**
+     * A mező utáni szóközöket átugorja és vesszőt vár.
+     * @return a vessző utáni pozíció, vagy -1 ha nincs vessző.
+     */
+    private int expectComma(ByteBuffer buffer, int p, int end) {
+        p = skipBlank(buffer, p, end);
+        if (p < end && buffer.get(p) == ',') {
+            return p + 1;
+        }
+        if (p < end) {
+            failure = "unexpected character";
+        }
+        return -1;
+    }
+
+    /**
+     * Átugorja a szóközöket és tabulátorokat.
+     * @return az első nem üres karakter pozíciója.
+     */
+    private static int skipBlank(ByteBuffer buffer, int p, int end) {
+        while (p < end && isBlank(buffer.get(p))) {
+            p++;
+        }
+        return p;
+    }
+
+    /**
+     * Megadja, hogy a karakter üres karakternek számít-e.
+     */
+    private static boolean isBlank(byte c) {
+        return c == ' ' || c == '\t' || c == '\r';
+    }
+
+    /**
+     * Feljegyez egy hibás sort.
+     * @param message a hiba oka.
+     * @param field a hibás mező neve.
+     */
+    private void error(String message, String field) {
+        errorCount++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(new ParseError(lineCount, field + ": " + message));
+        }
+    }
+
+    /**
+     * Fixpontos értéket lebegőpontossá alakít. Az osztás pontosan kerekít, így az eredmény megegyezik
+     * a 8 tizedesjegyre kerekített decimális érték legközelebbi double megfelelőjével.
+     * @param fixed az érték 1e-8 egységekben.
+     * @return az érték double típusként.
+     */
+    public static double toDouble(long fixed) {
+        return fixed / (double) SCALE;
+    }
+
+    /**
+     * Beállítja, hogy a feldolgozandó bájtok a bemenet elején kezdődnek-e.
+     * Egy fájl középső részét feldolgozó értelmezőnél hamisra kell állítani.
+     * @param startOfInput igaz, ha a bemenet elejét dolgozza fel.
+     */
+    public void setStartOfInput(boolean startOfInput) {
+        this.startOfInput = startOfInput;
+    }
+
+    /**
+     * Beállítja, hogy a bemenet végén lévő, újsor nélküli sort is feldolgozza-e. Egy éppen írt fájl
+     * betöltésekor hamisra kell állítani, hogy a félig kiírt sort a fájl követése olvassa be, ha elkészült.
+     * @param parseUnterminated igaz, ha az újsor nélküli utolsó sort is fel kell dolgozni.
+     */
+    public void setParseUnterminated(boolean parseUnterminated) {
+        this.parseUnterminated = parseUnterminated;
+    }
+
+    /**
+     * Megadja, hogy a bemenet végén lévő, újsor nélküli sort is feldolgozza-e.
+     * @return igaz, ha az újsor nélküli utolsó sort is feldolgozza.
+     */
+    public boolean isParseUnterminated() {
+        return parseUnterminated;
+    }
+
+    /**
+     * A beolvasott sorokat fogadó példányhoz tartozó getter.
+     * @return a sorokat fogadó példány.
+     */
+    public RowHandler getHandler() {
+        return handler;
+    }
+
+    /**
+     * Lebegőpontos értéket fixpontossá alakít, 8 tizedesjegyre, HALF_UP szabály szerint kerekítve.
+     * Az eredmény megegyezik a BigDecimal(String.valueOf(value)).setScale(8, HALF_UP) értékével,
+     * a BigDecimal osztályt azonban csak a kerekítési határ közvetlen közelébe eső értékeknél használja.
+     * @param value az átalakítandó érték.
+     * @return az érték 1e-8 egységekben.
+     * @throws ArithmeticException ha az érték nem véges, vagy nem ábrázolható fixpontosan.
+     */
+    public static long toFixed(double value) {
+        double scaled = Math.abs(value * SCALE);
+        if (!(scaled < 9.0e18)) {
+            throw new ArithmeticException("Coordinate out of range: " + value);
+        }
+        double floor = Math.floor(scaled);
+        double fraction = scaled - floor;
+        if (Math.abs(fraction - 0.5) <= scaled * 4.0e-16 + 1.0e-9) {
+            return new BigDecimal(String.valueOf(value)).setScale(DECIMALS, RoundingMode.HALF_UP).unscaledValue().longValue();
+        }
+        long result = (long) floor + (fraction > 0.5 ? 1 : 0);
+        return value < 0 ? -result : result;
+    }
+
+    /**
+     * Lecseréli a beolvasott sorokat fogadó példányt, pl. hogy a sorokat egy másik példány is megkapja.
+     * @param handler az új sorfogadó.
+     */
+    void setHandler(RowHandler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Az eltárolt hibákhoz tartozó getter. Legfeljebb {@value #MAX_ERRORS} hibát tartalmaz.
+     * @return a hibás sorok listája.
+     */
+    public List<ParseError> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Az összes hibás sor számához tartozó getter.
+     * @return a hibás sorok száma.
+     */
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * A feldolgozott sorok számához tartozó getter.
+     * @return a feldolgozott sorok száma, üres sorokkal együtt.
+     */
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * A helyesen beolvasott sorok számához tartozó getter.
+     * @return a beolvasott sorok száma.
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * A feldolgozott bájtok számához tartozó getter.
+     * @return az eddig feldolgozott sorok összesített hossza bájtokban.
+     */
+    public long getBytesConsumed() {
+        return bytesConsumed;
+    }
+
+    /**
+     * Az utolsó újsor karakterig feldolgozott bájtok számához tartozó getter.
+     * @return az utolsó feldolgozott újsor karakter utáni pozíció, innen folytatható a bemenet olvasása.
+     */
+    public long getCompleteBytes() {
+        return completeBytes;
+    }
+}
@@ -0,0 +1,197 @@
+package com.zalandemeter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Pufferelt CSV író. A koordinátákat 8 tizedesjegyre kerekítve, köztes String objektumok nélkül
+ * egy újrahasznosított bájttömbbe formázza, és nagy blokkokban írja ki a csatornára.
+ * Az értékeket a záró nullák nélkül, de legalább egy tizedesjeggyel írja ki (pl. 2.876, 12.0, 0.0001).
+ * @author zalandemeter
+ */
+public class CSVWriter implements Closeable {
+
+    /**
+     * A kimeneti puffer mérete bájtokban.
+     */
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Egy sor maximális hossza bájtokban, ennyi helynek kell szabadnak lennie a sor formázása előtt.
+     */
+    private static final int MAX_ROW_LENGTH = 96;
+
+    /**
+     * A platformhoz tartozó sorvége jel, egyszer lekérdezve.
+     */
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * A kimeneti csatorna.
+     */
+    private final WritableByteChannel channel;
+
+    /**
+     * A formázott sorokat gyűjtő puffer.
+     */
+    private final byte[] buffer;
+
+    /**
+     * A puffer első szabad pozíciója.
+     */
+    private int position;
+
+    /**
+     * Az osztály konstruktora.
+     * @param channel a kimeneti csatorna.
+     */
+    public CSVWriter(WritableByteChannel channel) {
+        this.channel = channel;
+        buffer = new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * Megnyitja írásra a paraméterül kapott fájlt. A meglévő fájl tartalmát felülírja.
+     * .gz végű fájlnév esetén a kimenetet menet közben, a leggyorsabb tömörítési szinttel gzip formátumban tömöríti.
+     * Ez az alapértelmezett szintnél mintegy 10%-kal nagyobb fájlt, de többszörösen gyorsabb mentést ad.
+     * @param filename a menteni kívánt fájl neve.
+     * @return a fájlba író példány.
+     * @throws IOException ha a fájl nem nyitható meg.
+     */
+    public static CSVWriter open(String filename) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        if (!CSVFileHandler.isCompressed(filename)) {
+            return new CSVWriter(channel);
+        }
+        try {
+            return new CSVWriter(Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE) {
+                {
+                    def.setLevel(Deflater.BEST_SPEED);
+                }
+            }));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Egy objektumot ír ki [x,y,szín] formátumban.
+     * @param x X koordináta.
+     * @param y Y koordináta.
+     * @param color színkód.
+     * @throws IOException írási hiba, vagy nem ábrázolható koordináta esetén.
+     */
+    public void writeRow(double x, double y, int color) throws IOException {
+        try {
+            writeRow(CSVParser.toFixed(x), CSVParser.toFixed(y), color);
+        } catch (ArithmeticException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Egy objektumot ír ki [x,y,szín] formátumban.
+     * @param x X koordináta 1e-8 egységekben.
+     * @param y Y koordináta 1e-8 egységekben.
+     * @param color színkód.
+     * @throws IOException írási hiba esetén.
+     */
+    public void writeRow(long x, long y, int color) throws IOException {
+        if (position + MAX_ROW_LENGTH > buffer.length) {
+            flush();
+        }
+        putFixed(x);
+        buffer[position++] = ',';
+        putFixed(y);
+        buffer[position++] = ',';
+        if (color < 0) {
+            buffer[position++] = '-';
+            putDigits(-(long) color);
+        } else {
+            putDigits(color);
+        }
+        for (byte b: LINE_SEPARATOR) {
+            buffer[position++] = b;
+        }
+    }
+
+    /**
+     * Fixpontos értéket ír a pufferbe a záró nullák elhagyásával.
+     * @param value az érték 1e-8 egységekben.
+     */
+    private void putFixed(long value) {
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        putDigits(value / CSVParser.SCALE);
+        buffer[position++] = '.';
+        long fraction = value % CSVParser.SCALE;
+        if (fraction == 0) {
+            buffer[position++] = '0';
+            return;
+        }
+        int width = CSVParser.DECIMALS;
+        while (fraction % 10 == 0) {
+            fraction /= 10;
+            width--;
+        }
+        for (int i = position + width - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + fraction % 10);
+            fraction /= 10;
+        }
+        position += width;
+    }
+
+    /**
+     * Nemnegatív egész számot ír a pufferbe.
+     * @param value a kiírandó érték.
+     */
+    private void putDigits(long value) {
+        int length = 1;
+        for (long v = value / 10; v != 0; v /= 10) {
+            length++;
+        }
+        for (int i = position + length - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position += length;
+    }
+
+    /**
+     * A pufferben lévő adatokat kiírja a csatornára.
+     * @throws IOException írási hiba esetén.
+     */
+    public void flush() throws IOException {
+        ByteBuffer out = ByteBuffer.wrap(buffer, 0, position);
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        position = 0;
+    }
+
+    /**
+     * Kiírja a pufferben maradt adatokat és lezárja a csatornát.
+     * @throws IOException írási hiba esetén.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
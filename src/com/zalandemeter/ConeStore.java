@@ -0,0 +1,569 @@
+package com.zalandemeter;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.RandomAccess;
+import java.util.function.IntConsumer;
+
+/**
+ * Az objektumokat primitív tömbökben (oszloponként) tároló, növekvő méretű lista.
+ * Objektumonként csak a két koordinátát 1e-8 egységű fixpontos egészként (a fájlformátum 8 tizedesjegyének megfelelően),
+ * egy bájtos színkódot és egy kijelölési bitet tárol,
+ * így a végigiterálás egy-egy tömb folytonos olvasása, mutatók követése nélkül.
+ * Az {@link Item} példányok a tárolt objektumok nézetei: a lista elemei csak lekéréskor jönnek létre,
+ * és a módosításaik közvetlenül a tömbökbe íródnak. Lebegőpontos értéket csak a kirajzolás és a geometriai számítások
+ * kapnak, beolvasáskor és mentéskor a koordináták kerekítés nélkül, egészként másolódnak. A hozzáadott {@link Item} példány maga is nézetté válik.
+ * A nagy mennyiségű objektumot érintő műveletek a primitív, index alapú függvényeket használják.
+ * A koordináták és színkódok tárolását a leszármazottak valósítják meg: {@link HeapConeStore} a Java heap-en,
+ * {@link OffHeapConeStore} a heap-en kívüli memóriában.
+ * @author zalandemeter
+ */
+public abstract class ConeStore extends AbstractList<Item> implements RandomAccess {
+
+    /**
+     * A heap-en kívüli tárolást bekapcsoló rendszertulajdonság neve (-Dcsveditor.offheap=true).
+     */
+    public static final String OFFHEAP_PROPERTY = "csveditor.offheap";
+
+    /**
+     * Az oszlopok kezdeti mérete.
+     */
+    protected static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * A kijelölt objektumok indexei.
+     */
+    private final BitSet selected;
+
+    /**
+     * A már létrehozott nézetek indexük szerint. Csak a ténylegesen lekért objektumoknak van bejegyzése,
+     * így a nézetek memóriaigénye a lekért objektumok számától függ, nem a tároló méretétől.
+     */
+    private HashMap<Integer, Item> views;
+
+    /**
+     * A tárolt objektumok száma.
+     */
+    private int size;
+
+    /**
+     * A kijelöletlen objektumok változásainak számlálója. Minden hozzáadás, törlés, kijelölés változás és
+     * kijelöletlen objektum módosítás növeli, a kijelölt objektumok módosítása nem.
+     */
+    private int version;
+
+    /**
+     * Az objektumok térbeli indexe. Csak az első kereséskor építjük fel, utána minden módosításkor frissítjük.
+     */
+    private SpatialGrid grid;
+
+    /**
+     * Az objektumok több felbontású sűrűségi összesítője. Csak az első lekéréskor építjük fel, utána minden módosításkor frissítjük.
+     */
+    private DensityPyramid density;
+
+    /**
+     * Az osztály konstruktora.
+     */
+    protected ConeStore() {
+        selected = new BitSet();
+        views = new HashMap<>();
+    }
+
+    /**
+     * Az indításkor megadott rendszertulajdonságnak megfelelő tárolót hozza létre.
+     * @return heap-en kívüli tároló, ha a {@link #OFFHEAP_PROPERTY} be van kapcsolva, egyébként heap-en tároló.
+     */
+    public static ConeStore create() {
+        return Boolean.getBoolean(OFFHEAP_PROPERTY) ? new OffHeapConeStore() : new HeapConeStore();
+    }
+
+    /**
+     * Az oszlopok jelenlegi mérete.
+     * @return az újrafoglalás nélkül tárolható objektumok száma.
+     */
+    protected abstract int capacity();
+
+    /**
+     * Az oszlopok legnagyobb lehetséges mérete. Alapértelmezetten a Java tömbök mérethatára.
+     * @return a tárolható objektumok legnagyobb száma.
+     */
+    protected int maxCapacity() {
+        return Integer.MAX_VALUE - 8;
+    }
+
+    /**
+     * Újrafoglalja az oszlopokat a megadott méretre, a meglévő objektumok megtartásával.
+     * @param capacity az oszlopok új mérete.
+     */
+    protected abstract void grow(int capacity);
+
+    /**
+     * Eggyel előrébb lépteti az oszlopok elemeit.
+     * @param index az első felülírt elem indexe.
+     * @param count a léptetett elemek száma.
+     */
+    protected abstract void shift(int index, int count);
+
+    /**
+     * Felszabadítja az oszlopok memóriáját, és a kezdeti méretű oszlopokat foglal helyettük.
+     */
+    protected abstract void free();
+
+    /**
+     * Biztosítja, hogy legalább a paraméterül kapott számú objektum elférjen újrafoglalás nélkül.
+     * Másfélszeresére növeli az oszlopokat, de legfeljebb a {@link #maxCapacity()} méretre.
+     * @param capacity a szükséges kapacitás.
+     * @throws IllegalStateException ha a szükséges kapacitás meghaladja a {@link #maxCapacity()} értéket.
+     */
+    public void ensureCapacity(int capacity) {
+        int current = capacity();
+        if (capacity > current) {
+            int max = maxCapacity();
+            if (capacity < 0 || capacity > max) {
+                throw new IllegalStateException("Cone store is full, at most " + max + " cones can be stored");
+            }
+            capacity = (int) Math.min(Math.max(capacity, current + (current >> 1)), max);
+            grow(capacity);
+        }
+    }
+
+    /**
+     * Új objektumot fűz a tároló végéhez nézet létrehozása nélkül.
+     * @param x X koordináta 1e-8 egységekben.
+     * @param y Y koordináta 1e-8 egységekben.
+     * @param color színkód.
+     */
+    public void addFixed(long x, long y, int color) {
+        ensureCapacity(size + 1);
+        size++;
+        putX(size - 1, x);
+        putY(size - 1, y);
+        putColor(size - 1, color);
+        if (grid != null) {
+            grid.add(size - 1);
+        }
+        if (density != null) {
+            density.add(x, y, getColor(size - 1));
+        }
+        version++;
+        modCount++;
+    }
+
+    /**
+     * Új objektumot fűz a tároló végéhez nézet létrehozása nélkül. A koordinátákat 8 tizedesjegyre kerekíti.
+     * @param x X koordináta.
+     * @param y Y koordináta.
+     * @param color színkód.
+     * @throws ArithmeticException ha a koordináta nem ábrázolható fixpontosan.
+     */
+    public void add(double x, double y, int color) {
+        addFixed(CSVParser.toFixed(x), CSVParser.toFixed(y), color);
+    }
+
+    /**
+     * A paraméterül kapott objektum értékeit a tároló végéhez fűzi, és az objektumot az új elem nézetévé teszi.
+     * Ha az objektum már egy tároló nézete, csak az értékeit másolja.
+     * @param item a hozzáadandó objektum.
+     * @return mindig igaz.
+     */
+    @Override
+    public boolean add(Item item) {
+        int index = size;
+        addFixed(item.getFixedX(), item.getFixedY(), item.getColor());
+        if (item.isSelected()) {
+            selected.set(index);
+            version++;
+        }
+        if (!item.isAttached()) {
+            view(index, item);
+        }
+        return true;
+    }
+
+    /**
+     * Az index-edik objektum nézete. A nézetet első lekéréskor hozza létre, utána ugyanazt a példányt adja vissza.
+     * @param index az objektum indexe.
+     * @return az objektum nézete.
+     */
+    @Override
+    public Item get(int index) {
+        checkIndex(index);
+        Item item = views.get(index);
+        if (item == null) {
+            item = new Item(0, 0, 0);
+            view(index, item);
+        }
+        return item;
+    }
+
+    /**
+     * Eltárolja és a tárolóhoz köti az index-edik objektum nézetét.
+     */
+    private void view(int index, Item item) {
+        views.put(index, item);
+        item.attach(this, index);
+    }
+
+    /**
+     * Törli az index-edik objektumot, a mögötte lévőket eggyel előrébb lépteti.
+     * A törölt objektum nézete megtartja az értékeit, de már nem kötődik a tárolóhoz.
+     * @param index a törlendő objektum indexe.
+     * @return a törölt objektum nézete.
+     */
+    @Override
+    public Item remove(int index) {
+        Item removed = get(index);
+        removed.detach();
+        if (grid != null) {
+            grid.remove(index, size);
+        }
+        if (density != null) {
+            density.remove(getFixedX(index), getFixedY(index), getColor(index));
+        }
+        int moved = size - index - 1;
+        shift(index, moved);
+        views.remove(index);
+        BitSet tail = selected.get(index + 1, size);
+        selected.clear(index, size);
+        for (int i = tail.nextSetBit(0); i >= 0; i = tail.nextSetBit(i + 1)) {
+            selected.set(index + i);
+        }
+        size--;
+        ArrayList<Item> shifted = new ArrayList<>();
+        for (Iterator<Item> it = views.values().iterator(); it.hasNext(); ) {
+            Item view = it.next();
+            if (view.getIndex() > index) {
+                shifted.add(view);
+                it.remove();
+            }
+        }
+        for (Item view: shifted) {
+            view.attach(this, view.getIndex() - 1);
+            views.put(view.getIndex(), view);
+        }
+        version++;
+        modCount++;
+        return removed;
+    }
+
+    /**
+     * Törli a paraméterül kapott nézethez tartozó objektumot.
+     * @param o a törlendő objektum.
+     * @return igaz, ha az objektum ebben a tárolóban volt.
+     */
+    @Override
+    public boolean remove(Object o) {
+        int index = indexOf(o);
+        if (index < 0) {
+            return false;
+        }
+        remove(index);
+        return true;
+    }
+
+    /**
+     * A paraméterül kapott nézet indexe. Nézetek létrehozása nélkül, konstans időben dolgozik.
+     * @param o a keresett objektum.
+     * @return az objektum indexe, vagy -1 ha nem ennek a tárolónak a nézete.
+     */
+    @Override
+    public int indexOf(Object o) {
+        if (o instanceof Item && ((Item) o).isAttachedTo(this)) {
+            return ((Item) o).getIndex();
+        }
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return indexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    /**
+     * Törli az összes objektumot. A meglévő nézetek megtartják az értékeiket.
+     */
+    @Override
+    public void clear() {
+        for (Item view: views.values()) {
+            view.detach();
+        }
+        views = new HashMap<>();
+        selected.clear();
+        grid = null;
+        density = null;
+        size = 0;
+        version++;
+        modCount++;
+    }
+
+    /**
+     * Törli az összes objektumot és azonnal felszabadítja az oszlopok memóriáját,
+     * nem várja meg, hogy a szemétgyűjtő felszabadítsa. Utána a tároló a kezdeti méretével tovább használható.
+     */
+    public void release() {
+        clear();
+        free();
+    }
+
+    /**
+     * Megkeresi a ponthoz legközelebbi objektumot a megadott sugáron belül, a térbeli index segítségével.
+     * Az indexet az első híváskor építi fel.
+     * @param x a pont X koordinátája.
+     * @param y a pont Y koordinátája.
+     * @param radius a keresés sugara.
+     * @return a legközelebbi objektum indexe, vagy -1 ha a sugáron belül nincs objektum.
+     */
+    public int nearest(double x, double y, double radius) {
+        return getGrid().nearest(x, y, radius);
+    }
+
+    /**
+     * Végighalad a téglalapba eső objektumokon. Kis téglalap esetén a térbeli indexben keres, ha viszont
+     * a téglalap több cellát érint, mint ahány objektum van, egyszerűen végignézi az összeset.
+     * Az objektumok sorrendje nem kötött.
+     * @param minX a téglalap bal széle.
+     * @param minY a téglalap felső széle.
+     * @param maxX a téglalap jobb széle.
+     * @param maxY a téglalap alsó széle.
+     * @param action a téglalapba eső objektumok indexét kapja meg.
+     */
+    public void forEachIn(double minX, double minY, double maxX, double maxY, IntConsumer action) {
+        if (getGrid().cellCount(minX, minY, maxX, maxY) < size) {
+            grid.forEachIn(minX, minY, maxX, maxY, action);
+            return;
+        }
+        for (int i = 0; i < size; i++) {
+            double x = getX(i);
+            double y = getY(i);
+            if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                action.accept(i);
+            }
+        }
+    }
+
+    /**
+     * A térbeli index, amit az első használatkor épít fel.
+     * @return a tároló térbeli indexe.
+     */
+    private SpatialGrid getGrid() {
+        if (grid == null) {
+            grid = new SpatialGrid(this, SpatialGrid.DEFAULT_CELL_SIZE);
+        }
+        return grid;
+    }
+
+    /**
+     * Az objektumok több felbontású sűrűségi összesítője, amit az első lekéréskor épít fel.
+     * @return a tároló sűrűségi összesítője.
+     */
+    public DensityPyramid getDensity() {
+        if (density == null) {
+            density = new DensityPyramid(this);
+        }
+        return density;
+    }
+
+    /**
+     * A tárolt objektumok száma.
+     * @return az objektumok száma.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Az index-edik objektum X koordinátája.
+     * @param index az objektum indexe.
+     * @return X koordináta 1e-8 egységekben.
+     */
+    public abstract long getFixedX(int index);
+
+    /**
+     * Az index-edik objektum Y koordinátája.
+     * @param index az objektum indexe.
+     * @return Y koordináta 1e-8 egységekben.
+     */
+    public abstract long getFixedY(int index);
+
+    /**
+     * Az index-edik objektum X koordinátája, kirajzoláshoz és geometriai számításokhoz.
+     * @param index az objektum indexe.
+     * @return X koordináta.
+     */
+    public double getX(int index) {
+        return CSVParser.toDouble(getFixedX(index));
+    }
+
+    /**
+     * Az index-edik objektum Y koordinátája, kirajzoláshoz és geometriai számításokhoz.
+     * @param index az objektum indexe.
+     * @return Y koordináta.
+     */
+    public double getY(int index) {
+        return CSVParser.toDouble(getFixedY(index));
+    }
+
+    /**
+     * Az index-edik objektum színkódja.
+     * @param index az objektum indexe.
+     * @return színkód.
+     */
+    public abstract int getColor(int index);
+
+    /**
+     * Az index-edik objektum kijelöltsége.
+     * @param index az objektum indexe.
+     * @return igaz, ha az objektum ki van jelölve.
+     */
+    public boolean isSelected(int index) {
+        return selected.get(index);
+    }
+
+    /**
+     * Az index-edik objektum X koordinátáját írja az oszlopba, a térbeli index frissítése nélkül.
+     * @param index az objektum indexe.
+     * @param x beállítandó X koordináta 1e-8 egységekben.
+     */
+    protected abstract void putX(int index, long x);
+
+    /**
+     * Az index-edik objektum Y koordinátáját írja az oszlopba, a térbeli index frissítése nélkül.
+     * @param index az objektum indexe.
+     * @param y beállítandó Y koordináta 1e-8 egységekben.
+     */
+    protected abstract void putY(int index, long y);
+
+    /**
+     * Beállítja az index-edik objektum X koordinátáját.
+     * @param index az objektum indexe.
+     * @param x beállítandó X koordináta 1e-8 egységekben.
+     */
+    public void setFixedX(int index, long x) {
+        if (grid != null) {
+            grid.move(index, getFixedX(index), getFixedY(index), x, getFixedY(index));
+        }
+        if (density != null) {
+            density.remove(getFixedX(index), getFixedY(index), getColor(index));
+            density.add(x, getFixedY(index), getColor(index));
+        }
+        changed(index);
+        putX(index, x);
+    }
+
+    /**
+     * Beállítja az index-edik objektum Y koordinátáját.
+     * @param index az objektum indexe.
+     * @param y beállítandó Y koordináta 1e-8 egységekben.
+     */
+    public void setFixedY(int index, long y) {
+        if (grid != null) {
+            grid.move(index, getFixedX(index), getFixedY(index), getFixedX(index), y);
+        }
+        if (density != null) {
+            density.remove(getFixedX(index), getFixedY(index), getColor(index));
+            density.add(getFixedX(index), y, getColor(index));
+        }
+        changed(index);
+        putY(index, y);
+    }
+
+    /**
+     * Beállítja az index-edik objektum X koordinátáját 8 tizedesjegyre kerekítve.
+     * @param index az objektum indexe.
+     * @param x beállítandó X koordináta.
+     * @throws ArithmeticException ha a koordináta nem ábrázolható fixpontosan.
+     */
+    public void setX(int index, double x) {
+        setFixedX(index, CSVParser.toFixed(x));
+    }
+
+    /**
+     * Beállítja az index-edik objektum Y koordinátáját 8 tizedesjegyre kerekítve.
+     * @param index az objektum indexe.
+     * @param y beállítandó Y koordináta.
+     * @throws ArithmeticException ha a koordináta nem ábrázolható fixpontosan.
+     */
+    public void setY(int index, double y) {
+        setFixedY(index, CSVParser.toFixed(y));
+    }
+
+    /**
+     * Az index-edik objektum színkódját írja az oszlopba.
+     * @param index az objektum indexe.
+     * @param color beállítandó színkód.
+     */
+    protected abstract void putColor(int index, int color);
+
+    /**
+     * Beállítja az index-edik objektum színkódját.
+     * @param index az objektum indexe.
+     * @param color beállítandó színkód.
+     */
+    public void setColor(int index, int color) {
+        if (density != null) {
+            density.remove(getFixedX(index), getFixedY(index), getColor(index));
+        }
+        changed(index);
+        putColor(index, color);
+        if (density != null) {
+            density.add(getFixedX(index), getFixedY(index), getColor(index));
+        }
+    }
+
+    /**
+     * Kijelöli az index-edik objektumot, vagy törli a kijelölését.
+     * @param index az objektum indexe.
+     * @param selected igaz, ha az objektumot ki szeretnénk jelölni.
+     */
+    public void setSelected(int index, boolean selected) {
+        if (this.selected.get(index) != selected) {
+            this.selected.set(index, selected);
+            version++;
+        }
+    }
+
+    /**
+     * A kijelölt objektumok indexei. A visszaadott halmaz a tároló saját példánya, nem szabad módosítani.
+     * @return a kijelölt objektumok indexei.
+     */
+    public BitSet getSelection() {
+        return selected;
+    }
+
+    /**
+     * A kijelöletlen objektumok változásainak számlálója. Ha két lekérdezés között nem változott,
+     * a kijelöletlen objektumok kirajzolása sem változott, így az eltárolt kép újra felhasználható.
+     * @return a változások számlálója.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Nyilvántartja az index-edik objektum módosítását. Csak a kijelöletlen objektumok változása számít.
+     */
+    private void changed(int index) {
+        if (!selected.get(index)) {
+            version++;
+        }
+    }
+
+    /**
+     * Ellenőrzi, hogy az index a tárolt objektumok közé mutat-e.
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
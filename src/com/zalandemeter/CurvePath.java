@@ -0,0 +1,136 @@
+package com.zalandemeter;
+
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+
+/**
+ * Egy sorbarendezett ív összekötött objektumaiból épített, eltárolt zárt útvonal.
+ * Az útvonalat csak akkor építi újra, ha a sorrend, az objektumok kirajzolási távolsága,
+ * vagy valamelyik összekötött objektum helye megváltozott, így kirajzoláskor az ív egyetlen alakzat.
+ * @author zalandemeter
+ */
+public class CurvePath {
+
+    /**
+     * A sorrend, amihez az útvonal készült.
+     */
+    private int[] idx;
+
+    /**
+     * Az objektumok listája, amihez az útvonal készült.
+     */
+    private List<Item> items;
+
+    /**
+     * Az objektumok kirajzolási távolsága, amihez az útvonal készült.
+     */
+    private int objectDistance;
+
+    /**
+     * Az összekötött objektumok X koordinátái a sorrendben, 1e-8 egységekben.
+     */
+    private long[] x;
+
+    /**
+     * Az összekötött objektumok Y koordinátái a sorrendben, 1e-8 egységekben.
+     */
+    private long[] y;
+
+    /**
+     * Az eltárolt útvonal. Értéke null, ha nincs sorrend.
+     */
+    private Path2D path;
+
+    /**
+     * Az eltárolt útvonal befoglaló téglalapja.
+     */
+    private Rectangle2D bounds;
+
+    /**
+     * A sorrendnek megfelelő útvonal. Ha az útvonal elavult, újraépíti, egyébként a korábbi példányt adja vissza,
+     * így a példány változása jelzi, hogy az ív kirajzolása megváltozott.
+     * @param idx a sorrend, vagy null ha nincs sorbarendezés.
+     * @param items az objektumok, amikre a sorrend indexei mutatnak.
+     * @return az útvonal a kirajzolási távolsággal szorzott koordinátákban, vagy null ha nincs sorrend.
+     */
+    public Path2D get(int[] idx, List<Item> items) {
+        if (idx == null || idx.length == 0) {
+            this.idx = null;
+            path = null;
+            bounds = null;
+            return null;
+        }
+        if (idx != this.idx || items != this.items || objectDistance != Item.getObjectDistance() || moved()) {
+            this.idx = idx;
+            this.items = items;
+            objectDistance = Item.getObjectDistance();
+            x = new long[idx.length];
+            y = new long[idx.length];
+            for (int i = 0; i < idx.length; i++) {
+                Item item = items.get(idx[i]);
+                x[i] = item.getFixedX();
+                y[i] = item.getFixedY();
+            }
+            path = build(x, y, idx.length);
+            bounds = path.getBounds2D();
+        }
+        return path;
+    }
+
+    /**
+     * Az eltárolt útvonal befoglaló téglalapja, a kirajzolási távolsággal szorzott koordinátákban.
+     * @return a befoglaló téglalap, vagy null ha nincs útvonal.
+     */
+    public Rectangle2D getBounds() {
+        return bounds;
+    }
+
+    /**
+     * Megadja, hogy valamelyik összekötött objektum helye eltér-e az útvonal építésekor eltárolttól.
+     */
+    private boolean moved() {
+        for (int i = 0; i < idx.length; i++) {
+            Item item = items.get(idx[i]);
+            if (item.getFixedX() != x[i] || item.getFixedY() != y[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Felépíti a sorrendnek megfelelő zárt útvonalat, eltárolás nélkül.
+     * @param idx a sorrend.
+     * @param items az objektumok, amikre a sorrend indexei mutatnak.
+     * @return az útvonal a kirajzolási távolsággal szorzott koordinátákban.
+     */
+    public static Path2D build(int[] idx, List<Item> items) {
+        long[] x = new long[idx.length];
+        long[] y = new long[idx.length];
+        for (int i = 0; i < idx.length; i++) {
+            x[i] = items.get(idx[i]).getFixedX();
+            y[i] = items.get(idx[i]).getFixedY();
+        }
+        return build(x, y, idx.length);
+    }
+
+    /**
+     * Felépíti a pontokon sorban végighaladó zárt útvonalat.
+     */
+    private static Path2D build(long[] x, long[] y, int count) {
+        double distance = Item.getObjectDistance();
+        Path2D.Double path = new Path2D.Double(Path2D.WIND_NON_ZERO, count + 1);
+        for (int i = 0; i < count; i++) {
+            double px = CSVParser.toDouble(x[i]) * distance;
+            double py = CSVParser.toDouble(y[i]) * distance;
+            if (i == 0) {
+                path.moveTo(px, py);
+            } else {
+                path.lineTo(px, py);
+            }
+        }
+        path.closePath();
+        return path;
+    }
+}
@@ -0,0 +1,356 @@
+package com.zalandemeter;
+
+/**
+ * Több felbontású sűrűségi összesítő egy {@link ConeStore} tároló objektumaihoz.
+ * Szintenként négyzetrácsra osztja a síkot, és cellánként színkódonként megszámolja a benne lévő objektumokat.
+ * A legfinomabb szint cellája {@link #BASE_CELL_SIZE}, minden további szinten kétszeresére nő.
+ * Kicsinyített nézetben a vászon az objektumok helyett a képernyő felbontásához illő szint celláit rajzolja ki,
+ * így a kirajzolás ideje a képernyő méretétől függ, nem az objektumok számától.
+ * Egy szintet csak az első használatakor épít fel, a már felépített szinteket a tároló tartja karban
+ * hozzáadáskor, törléskor és módosításkor.
+ * @author zalandemeter
+ */
+public class DensityPyramid {
+
+    /**
+     * A legfinomabb szint cellamérete 1e-8 egységekben, a koordinátarendszer egy egysége. Ennél finomabb szintet
+     * a vászon nem rajzolna ki, mert ekkora nagyításnál az objektumok már nem érik el a sűrűségi küszöböt.
+     */
+    public static final long BASE_CELL_SIZE = CSVParser.SCALE;
+
+    /**
+     * A szintek száma. A legdurvább szint cellája 512 egység, ezt a legkisebb nagyítású nézet becslése használja.
+     */
+    public static final int LEVELS = 10;
+
+    /**
+     * A cellánként tárolt számlálók száma: a 0-4 színkódok, a többi színkód együtt, és az összesen.
+     */
+    public static final int COUNTERS = SpriteCache.COLORS + 2;
+
+    /**
+     * Az összes objektum számlálójának helye a cella számlálói között.
+     */
+    public static final int TOTAL = COUNTERS - 1;
+
+    /**
+     * A cellákat kapó függvény.
+     */
+    public interface CellHandler {
+        /**
+         * Egy nem üres cella.
+         * @param cellX a cella X indexe a szinten.
+         * @param cellY a cella Y indexe a szinten.
+         * @param counts a számlálók tömbje.
+         * @param offset a cella első számlálójának helye a tömbben, az összesen az offset + {@link #TOTAL} helyen van.
+         */
+        void cell(long cellX, long cellY, int[] counts, int offset);
+    }
+
+    /**
+     * Egy szint celláit tároló, nyílt címzésű hasítótábla, legfeljebb háromnegyedes telítettséggel.
+     */
+    private static final class Level {
+        /**
+         * A cellák mérete 1e-8 egységekben.
+         */
+        private final long cellSize;
+
+        /**
+         * A cellák X indexei.
+         */
+        private long[] cellX;
+
+        /**
+         * A cellák Y indexei.
+         */
+        private long[] cellY;
+
+        /**
+         * Igaz, ha a tábla adott helye foglalt.
+         */
+        private boolean[] used;
+
+        /**
+         * A cellák számlálói, helyenként {@link #COUNTERS} darab.
+         */
+        private int[] counts;
+
+        /**
+         * A foglalt helyek száma.
+         */
+        private int cells;
+
+        /**
+         * A szint konstruktora.
+         * @param cellSize a cellák mérete 1e-8 egységekben.
+         */
+        Level(long cellSize) {
+            this.cellSize = cellSize;
+            allocate(16);
+        }
+
+        /**
+         * Lefoglalja a megadott méretű üres táblát.
+         */
+        private void allocate(int length) {
+            cellX = new long[length];
+            cellY = new long[length];
+            used = new boolean[length];
+            counts = new int[length * COUNTERS];
+            cells = 0;
+        }
+
+        /**
+         * A cella helye a táblában. Ha a cella még nincs a táblában és create igaz, felveszi nulla számlálókkal.
+         * @return a cella helye, vagy -1 ha nincs a táblában.
+         */
+        int slot(long x, long y, boolean create) {
+            int mask = used.length - 1;
+            long hash = x * 0x9E3779B97F4A7C15L + y * 0xC2B2AE3D27D4EB4FL;
+            int slot = (int) (hash ^ (hash >>> 32)) & mask;
+            while (used[slot]) {
+                if (cellX[slot] == x && cellY[slot] == y) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (!create) {
+                return -1;
+            }
+            if ((cells + 1) * 4L > used.length * 3L) {
+                rehash();
+                return slot(x, y, true);
+            }
+            used[slot] = true;
+            cellX[slot] = x;
+            cellY[slot] = y;
+            cells++;
+            return slot;
+        }
+
+        /**
+         * Nagyobb táblába helyezi át a cellákat, az üressé vált cellákat elhagyja.
+         */
+        private void rehash() {
+            long[] oldX = cellX;
+            long[] oldY = cellY;
+            boolean[] oldUsed = used;
+            int[] oldCounts = counts;
+            int live = 0;
+            for (int i = 0; i < oldUsed.length; i++) {
+                if (oldUsed[i] && oldCounts[i * COUNTERS + TOTAL] != 0) {
+                    live++;
+                }
+            }
+            int length = oldUsed.length;
+            while ((live + 1) * 2L > length) {
+                length <<= 1;
+            }
+            allocate(length);
+            for (int i = 0; i < oldUsed.length; i++) {
+                if (oldUsed[i] && oldCounts[i * COUNTERS + TOTAL] != 0) {
+                    int slot = slot(oldX[i], oldY[i], true);
+                    System.arraycopy(oldCounts, i * COUNTERS, counts, slot * COUNTERS, COUNTERS);
+                }
+            }
+        }
+
+        /**
+         * Hozzáadja egy finomabb szint celláinak számlálóit a cellákat lefedő cellákhoz.
+         * @param finer a finomabb szint.
+         */
+        void addAll(Level finer) {
+            int shift = Long.numberOfTrailingZeros(cellSize / finer.cellSize);
+            for (int i = 0; i < finer.used.length; i++) {
+                if (finer.used[i] && finer.counts[i * COUNTERS + TOTAL] != 0) {
+                    int slot = slot(finer.cellX[i] >> shift, finer.cellY[i] >> shift, true);
+                    for (int c = 0; c < COUNTERS; c++) {
+                        counts[slot * COUNTERS + c] += finer.counts[i * COUNTERS + c];
+                    }
+                }
+            }
+        }
+
+        /**
+         * Módosítja az objektumot tartalmazó cella számlálóit.
+         * @param x az objektum X koordinátája 1e-8 egységekben.
+         * @param y az objektum Y koordinátája 1e-8 egységekben.
+         * @param counter a színkódhoz tartozó számláló helye.
+         * @param delta a változás, +1 vagy -1.
+         */
+        void add(long x, long y, int counter, int delta) {
+            int slot = slot(Math.floorDiv(x, cellSize), Math.floorDiv(y, cellSize), true);
+            counts[slot * COUNTERS + counter] += delta;
+            counts[slot * COUNTERS + TOTAL] += delta;
+        }
+    }
+
+    /**
+     * Az összesített tároló.
+     */
+    private final ConeStore store;
+
+    /**
+     * A szintek, a legfinomabbtól a legdurvábbig. A még fel nem épített szintek helyén null áll.
+     */
+    private final Level[] levels;
+
+    /**
+     * A változások számlálója, minden módosítás növeli.
+     */
+    private int version;
+
+    /**
+     * Az osztály konstruktora. A szinteket csak az első használatukkor építi fel.
+     * @param store az összesítendő tároló.
+     */
+    public DensityPyramid(ConeStore store) {
+        this.store = store;
+        levels = new Level[LEVELS];
+    }
+
+    /**
+     * A megadott szint, amit szükség esetén felépít. Ha van már felépített finomabb szint, annak celláit vonja össze,
+     * különben a tároló összes objektumát megszámolja.
+     * @param level a szint indexe.
+     * @return a szint cellái.
+     */
+    private Level build(int level) {
+        if (levels[level] == null) {
+            Level cells = new Level(BASE_CELL_SIZE << level);
+            int finer = level - 1;
+            while (finer >= 0 && levels[finer] == null) {
+                finer--;
+            }
+            if (finer >= 0) {
+                cells.addAll(levels[finer]);
+            } else {
+                for (int i = 0; i < store.size(); i++) {
+                    cells.add(store.getFixedX(i), store.getFixedY(i), counter(store.getColor(i)), 1);
+                }
+            }
+            levels[level] = cells;
+        }
+        return levels[level];
+    }
+
+    /**
+     * Megadja, hogy a szint fel van-e már építve.
+     * @param level a szint indexe.
+     * @return igaz, ha a szint cellái már elkészültek.
+     */
+    boolean isBuilt(int level) {
+        return levels[level] != null;
+    }
+
+    /**
+     * A színkódhoz tartozó számláló helye.
+     */
+    private static int counter(int color) {
+        return color >= 0 && color < SpriteCache.COLORS ? color : SpriteCache.COLORS;
+    }
+
+    /**
+     * Hozzászámol egy objektumot minden felépített szinthez.
+     * @param x X koordináta 1e-8 egységekben.
+     * @param y Y koordináta 1e-8 egységekben.
+     * @param color színkód.
+     */
+    public void add(long x, long y, int color) {
+        for (Level level: levels) {
+            if (level != null) {
+                level.add(x, y, counter(color), 1);
+            }
+        }
+        version++;
+    }
+
+    /**
+     * Levon egy objektumot minden felépített szintről.
+     * @param x X koordináta 1e-8 egységekben.
+     * @param y Y koordináta 1e-8 egységekben.
+     * @param color színkód.
+     */
+    public void remove(long x, long y, int color) {
+        for (Level level: levels) {
+            if (level != null) {
+                level.add(x, y, counter(color), -1);
+            }
+        }
+        version++;
+    }
+
+    /**
+     * A szint, aminek a cellái legalább a megadott szélességűek. Ha nincs ilyen, a legdurvább szint.
+     * @param cellWidth a kívánt cellaszélesség a koordinátarendszer egységeiben.
+     * @return a szint indexe.
+     */
+    public int level(double cellWidth) {
+        for (int k = 0; k < LEVELS; k++) {
+            if (getCellWidth(k) >= cellWidth) {
+                return k;
+            }
+        }
+        return LEVELS - 1;
+    }
+
+    /**
+     * A szint cellaszélessége a koordinátarendszer egységeiben.
+     * @param level a szint indexe.
+     * @return a cellák szélessége.
+     */
+    public double getCellWidth(int level) {
+        return (BASE_CELL_SIZE << level) / (double) CSVParser.SCALE;
+    }
+
+    /**
+     * Végighalad a szint téglalapot érintő, nem üres celláin. Ha a szint még nincs felépítve, felépíti.
+     * @param level a szint indexe.
+     * @param minX a téglalap bal széle.
+     * @param minY a téglalap felső széle.
+     * @param maxX a téglalap jobb széle.
+     * @param maxY a téglalap alsó széle.
+     * @param handler a cellákat kapó függvény.
+     */
+    public void forEachCell(int level, double minX, double minY, double maxX, double maxY, CellHandler handler) {
+        Level cells = build(level);
+        double cellWidth = getCellWidth(level);
+        long fromX = (long) Math.floor(minX / cellWidth);
+        long toX = (long) Math.floor(maxX / cellWidth);
+        long fromY = (long) Math.floor(minY / cellWidth);
+        long toY = (long) Math.floor(maxY / cellWidth);
+        for (long cx = fromX; cx <= toX; cx++) {
+            for (long cy = fromY; cy <= toY; cy++) {
+                int slot = cells.slot(cx, cy, false);
+                if (slot >= 0 && cells.counts[slot * COUNTERS + TOTAL] > 0) {
+                    handler.cell(cx, cy, cells.counts, slot * COUNTERS);
+                }
+            }
+        }
+    }
+
+    /**
+     * Becsüli a téglalapba eső objektumok számát. Egy olyan durva szint celláit összegzi, aminél a téglalap legfeljebb
+     * néhány száz cellát érint, ezért a téglalap szélén lévő cellák miatt felfelé kerekít.
+     * @param minX a téglalap bal széle.
+     * @param minY a téglalap felső széle.
+     * @param maxX a téglalap jobb széle.
+     * @param maxY a téglalap alsó széle.
+     * @return a becsült objektumszám.
+     */
+    public long estimate(double minX, double minY, double maxX, double maxY) {
+        int level = level(Math.max(maxX - minX, maxY - minY) / 16);
+        long[] total = new long[1];
+        forEachCell(level, minX, minY, maxX, maxY, (cellX, cellY, counts, offset) -> total[0] += counts[offset + TOTAL]);
+        return total[0];
+    }
+
+    /**
+     * A változások számlálója.
+     * @return a számláló értéke.
+     */
+    public int getVersion() {
+        return version;
+    }
+}
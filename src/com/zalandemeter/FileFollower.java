@@ -0,0 +1,319 @@
+package com.zalandemeter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Egy folyamatosan bővülő CSV fájlt figyelő osztály. A fájl változásakor csak az utolsó olvasás óta
+ * hozzáfűzött teljes sorokat dolgozza fel, és az új objektumokat átadja a figyelőnek.
+ * A változásokról WatchService segítségével értesül, ha ez nem érhető el, a fájl méretét kérdezi le rendszeresen.
+ * Ha a fájlt csonkolták vagy újraírták, egyszer jelez a figyelőnek a teljes újratöltéshez, majd leáll.
+ * @author zalandemeter
+ */
+public class FileFollower implements Runnable, Closeable {
+
+    /**
+     * Két ellenőrzés között eltelt maximális idő ezredmásodpercben. WatchService nélkül ilyen gyakran kérdezi le a fájlt.
+     */
+    private static final long POLL_INTERVAL = 500;
+
+    /**
+     * A fájl elejéből ennyi bájtot jegyez meg, ezzel ismeri fel a fájl újraírását.
+     */
+    private static final int HEAD_SIZE = 256;
+
+    /**
+     * Az olvasási puffer kezdeti mérete bájtokban.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * A figyelt fájl változásait fogadó interfész.
+     */
+    public interface Listener {
+        /**
+         * A fájlhoz hozzáfűzött sorokból beolvasott objektumok feldolgozása. A figyelő szálon hívódik meg.
+         * @param rows az új objektumok, fixpontos koordinátákkal.
+         */
+        void appended(RowBuffer rows);
+
+        /**
+         * A fájlt csonkolták vagy újraírták, teljes újratöltésre van szükség. A figyelő szálon hívódik meg.
+         */
+        void reload();
+    }
+
+    /**
+     * A figyelt fájl abszolút elérési útvonala.
+     */
+    private final Path path;
+
+    /**
+     * A változásokat fogadó példány.
+     */
+    private final Listener listener;
+
+    /**
+     * A hozzáfűzött sorokat beolvasó értelmező. Az egymást követő olvasások között megmarad, így a hibás sorok
+     * sorszáma a figyelés kezdetétől számít.
+     */
+    private final CSVParser parser;
+
+    /**
+     * Az aktuális olvasás során beolvasott objektumok.
+     */
+    private RowBuffer rows;
+
+    /**
+     * Az olvasási puffer, a puffernél hosszabb sorok esetén megnő.
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * Az első fel nem dolgozott bájt pozíciója a fájlban.
+     */
+    private long offset;
+
+    /**
+     * A fájl elejének tartalma a figyelés kezdetén.
+     */
+    private byte[] head;
+
+    /**
+     * A fájlrendszer szerinti fájlazonosító a figyelés kezdetén, ha a fájlrendszer támogatja.
+     */
+    private Object fileKey;
+
+    /**
+     * Az eddig kiírt hibás sorok száma.
+     */
+    private int reportedErrors;
+
+    /**
+     * A figyelést végző szál.
+     */
+    private Thread thread;
+
+    /**
+     * Hamisra állítva a figyelő szál leáll.
+     */
+    private volatile boolean running;
+
+    /**
+     * Az osztály konstruktora.
+     * @param filename a figyelendő fájl neve.
+     * @param offset a már beolvasott bájtok száma, innen folytatja az olvasást.
+     * @param listener a változásokat fogadó példány.
+     */
+    public FileFollower(String filename, long offset, Listener listener) {
+        this.path = Paths.get(filename).toAbsolutePath();
+        this.offset = offset;
+        this.listener = listener;
+        parser = new CSVParser((x, y, color) -> rows.row(x, y, color));
+        parser.setStartOfInput(offset == 0);
+        buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    }
+
+    /**
+     * Elindítja a figyelést egy háttérszálon.
+     * @throws IOException ha a fájl nem olvasható.
+     */
+    public void start() throws IOException {
+        head = readHead((int) Math.min(HEAD_SIZE, offset));
+        fileKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+        running = true;
+        thread = new Thread(this, "FileFollower " + path.getFileName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * A figyelő szál törzse. A fájl könyvtárát WatchService-szel figyeli, de legalább
+     * {@value #POLL_INTERVAL} ezredmásodpercenként akkor is ellenőrzi a fájlt, ha nem kapott értesítést.
+     */
+    @Override
+    public void run() {
+        WatchService watcher = null;
+        try {
+            watcher = FileSystems.getDefault().newWatchService();
+            path.getParent().register(watcher, StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException | UnsupportedOperationException e) {
+            /*
+             * WatchService nélkül a fájl lekérdezésével figyelünk.
+             */
+            closeQuietly(watcher);
+            watcher = null;
+        }
+        try {
+            while (running && check()) {
+                if (watcher != null) {
+                    WatchKey key = watcher.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                    if (key != null) {
+                        key.pollEvents();
+                        key.reset();
+                    }
+                } else {
+                    Thread.sleep(POLL_INTERVAL);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeQuietly(watcher);
+        }
+    }
+
+    /**
+     * Ellenőrzi a fájlt, és beolvassa a hozzáfűzött teljes sorokat.
+     * @return hamis, ha a figyelést be kell fejezni.
+     */
+    boolean check() {
+        try {
+            if (!Files.exists(path)) {
+                return true;
+            }
+            long size = Files.size(path);
+            if (size == offset) {
+                return true;
+            }
+            if (size < offset || !Objects.equals(fileKey, Files.readAttributes(path, BasicFileAttributes.class).fileKey())
+                    || !Arrays.equals(head, readHead(head.length))) {
+                if (running) {
+                    listener.reload();
+                }
+                return false;
+            }
+            readAppended(size);
+            return true;
+        } catch (IOException e) {
+            if (running) {
+                e.printStackTrace();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Beolvassa a fájl [offset, size) tartományának teljes sorait, és átadja az új objektumokat a figyelőnek.
+     * A félig kiírt utolsó sort a következő olvasásig meghagyja.
+     * @param size a fájl aktuális mérete.
+     * @throws IOException olvasási hiba esetén.
+     */
+    private void readAppended(long size) throws IOException {
+        rows = new RowBuffer(64);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long position = offset;
+            buffer.clear();
+            while (position < size) {
+                if (buffer.remaining() > size - position) {
+                    buffer.limit(buffer.position() + (int) (size - position));
+                }
+                int read = channel.read(buffer, position);
+                if (read <= 0) {
+                    break;
+                }
+                position += read;
+                buffer.flip();
+                int start = buffer.position();
+                parser.parse(buffer, false);
+                offset += buffer.position() - start;
+                if (buffer.position() == 0 && buffer.limit() == buffer.capacity()) {
+                    ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                    larger.put(buffer);
+                    buffer = larger;
+                } else {
+                    buffer.compact();
+                }
+            }
+        }
+        reportErrors();
+        if (rows.size() > 0 && running) {
+            listener.appended(rows);
+        }
+    }
+
+    /**
+     * A hibakimenetre írja az utolsó kiírás óta talált hibás sorokat.
+     */
+    private void reportErrors() {
+        List<CSVParser.ParseError> errors = parser.getErrors();
+        for (int i = reportedErrors; i < errors.size(); i++) {
+            System.err.println(path + ": appended " + errors.get(i));
+        }
+        reportedErrors = errors.size();
+    }
+
+    /**
+     * Beolvassa a fájl elejét.
+     * @param length a beolvasandó bájtok száma.
+     * @return a fájl eleje, rövidebb fájl esetén a teljes fájl.
+     * @throws IOException olvasási hiba esetén.
+     */
+    private byte[] readHead(int length) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(length);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (bytes.hasRemaining() && channel.read(bytes, bytes.position()) > 0) {
+                /*
+                 * Olvasunk, amíg a puffer meg nem telik, vagy a fájl véget nem ér.
+                 */
+            }
+        }
+        return Arrays.copyOf(bytes.array(), bytes.position());
+    }
+
+    /**
+     * Leállítja a figyelést. A futó ellenőrzés után már nem hív figyelőt.
+     */
+    @Override
+    public void close() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Lezárja a WatchService-t, a hibát figyelmen kívül hagyja.
+     */
+    private static void closeQuietly(WatchService watcher) {
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Az első fel nem dolgozott bájt pozíciójához tartozó getter.
+     * @return a már beolvasott bájtok száma.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * A figyelt fájlhoz tartozó getter.
+     * @return a figyelt fájl abszolút elérési útvonala.
+     */
+    public String getFilename() {
+        return path.toString();
+    }
+}
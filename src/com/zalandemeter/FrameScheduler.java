@@ -0,0 +1,164 @@
+package com.zalandemeter;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.geom.Point2D;
+import java.util.function.Consumer;
+
+/**
+ * Az egérrel kiváltott újrarajzolásokat képkockánként összevonó ütemező.
+ * Az események csak megjelölik a vászon újrarajzolandó területét és az egérmutató helyzetét, a tényleges
+ * újrarajzolás a kijelző frissítési ütemében, képkockánként legfeljebb egyszer történik. Ha csak egy-egy
+ * objektum környéke változott, csak az érintett területek befoglaló téglalapját rajzolja újra.
+ * A lábléc koordináta kijelzését legfeljebb {@link #FOOTER_INTERVAL} ezredmásodpercenként frissíti.
+ * Az eseménykezelő szálon kell használni.
+ * @author zalandemeter
+ */
+public class FrameScheduler implements ActionListener {
+
+    /**
+     * A képkockák közötti idő ezredmásodpercben, ha a kijelző frissítési üteme nem ismert.
+     */
+    public static final int DEFAULT_FRAME_INTERVAL = 1000 / 60;
+
+    /**
+     * A lábléc koordináta kijelzésének két frissítése között eltelt legrövidebb idő ezredmásodpercben.
+     */
+    public static final int FOOTER_INTERVAL = 50;
+
+    /**
+     * Az újrarajzolandó vászon.
+     */
+    private final CSVCanvas canvas;
+
+    /**
+     * Az egérmutató helyzetét a láblécen kijelző függvény.
+     */
+    private final Consumer<Point2D> coords;
+
+    /**
+     * A következő képkockát időzítő egyszeri időzítő.
+     */
+    private final Timer timer;
+
+    /**
+     * A képkockák közötti idő ezredmásodpercben.
+     */
+    private final int frameInterval;
+
+    /**
+     * Igaz, ha a következő képkockában a teljes vásznat újra kell rajzolni.
+     */
+    private boolean fullRepaint;
+
+    /**
+     * A következő képkockában újrarajzolandó terület, vagy null ha nincs ilyen.
+     */
+    private Rectangle dirty;
+
+    /**
+     * Az egérmutató még ki nem jelzett helyzete, vagy null ha nincs ilyen.
+     */
+    private Point2D pointer;
+
+    /**
+     * A lábléc legutóbbi frissítésének ideje ezredmásodpercben.
+     */
+    private long lastFooter;
+
+    /**
+     * Az osztály konstruktora. A képkockák közötti időt a kijelző frissítési üteméből számolja.
+     * @param canvas az újrarajzolandó vászon.
+     * @param coords az egérmutató helyzetét a láblécen kijelző függvény.
+     */
+    public FrameScheduler(CSVCanvas canvas, Consumer<Point2D> coords) {
+        this.canvas = canvas;
+        this.coords = coords;
+        frameInterval = getFrameInterval();
+        timer = new Timer(frameInterval, this);
+        timer.setRepeats(false);
+    }
+
+    /**
+     * A képkockák közötti idő az alapértelmezett kijelző frissítési üteméből.
+     * @return a képkockák közötti idő ezredmásodpercben.
+     */
+    public static int getFrameInterval() {
+        if (!GraphicsEnvironment.isHeadless()) {
+            int refreshRate = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                    .getDisplayMode().getRefreshRate();
+            if (refreshRate != DisplayMode.REFRESH_RATE_UNKNOWN && refreshRate > 0) {
+                return Math.max(1, 1000 / refreshRate);
+            }
+        }
+        return DEFAULT_FRAME_INTERVAL;
+    }
+
+    /**
+     * Megjelöli a teljes vásznat újrarajzolásra a következő képkockában.
+     */
+    public void requestRepaint() {
+        fullRepaint = true;
+        dirty = null;
+        schedule(frameInterval);
+    }
+
+    /**
+     * Megjelöli a vászon egy területét újrarajzolásra a következő képkockában.
+     * @param region a terület a vászon koordinátáiban.
+     */
+    public void requestRepaint(Rectangle region) {
+        if (!fullRepaint) {
+            dirty = dirty == null ? new Rectangle(region) : dirty.union(region);
+        }
+        schedule(frameInterval);
+    }
+
+    /**
+     * Eltárolja az egérmutató helyzetét, amit a lábléc következő frissítésekor jelez ki.
+     * @param point az egérmutató helyzete a vászon koordinátáiban.
+     */
+    public void requestCoords(Point2D point) {
+        pointer = point;
+        schedule(frameInterval);
+    }
+
+    /**
+     * Elindítja az időzítőt, ha még nem fut.
+     */
+    private void schedule(int delay) {
+        if (!timer.isRunning()) {
+            timer.setInitialDelay(delay);
+            timer.start();
+        }
+    }
+
+    /**
+     * A képkocka: végrehajtja az összegyűlt újrarajzolást, és ha esedékes, frissíti a láblécet.
+     * Ha a lábléc frissítése még nem esedékes, újraindítja az időzítőt a hátralévő időre.
+     * @param e az időzítő eseménye.
+     */
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        if (fullRepaint) {
+            canvas.repaint();
+        } else if (dirty != null) {
+            canvas.repaint(dirty);
+        }
+        fullRepaint = false;
+        dirty = null;
+        if (pointer != null) {
+            long now = System.currentTimeMillis();
+            long wait = lastFooter + FOOTER_INTERVAL - now;
+            if (wait <= 0) {
+                coords.accept(pointer);
+                pointer = null;
+                lastFooter = now;
+            } else {
+                schedule((int) wait);
+            }
+        }
+    }
+}
@@ -38,6 +38,11 @@ public class GUI {
      */
     private final CSVMouseListener csvMouseListener;
 
+    /**
+     * Az egérrel kiváltott újrarajzolásokat képkockánként összevonó ütemező.
+     */
+    private final FrameScheduler frameScheduler;
+
     /**
      * A fájlokkal kapcsolatos műveleteket tárolja.
      */
@@ -57,6 +62,7 @@ public class GUI {
         canvas = new CSVCanvas();
         csvFileHandler = new CSVFileHandler(canvas);
         csvMouseListener = new CSVMouseListener(this);
+        frameScheduler = new FrameScheduler(canvas, csvMouseListener::setRelativeCoords);
         guiHandlers = new GUIHandlers(this);
         menuBar = new CSVMenuBar(guiHandlers);
         footer = new CSVFooter(guiHandlers);
@@ -84,6 +90,10 @@ public class GUI {
         canvas.addMouseListener(csvMouseListener);
         canvas.addMouseMotionListener(csvMouseListener);
         canvas.addMouseWheelListener(csvMouseListener);
+        canvas.addPropertyChangeListener(CSVCanvas.DRAWN_PROPERTY,
+                e -> footer.setDrawnObjects(canvas.getDrawnObjects(), canvas.getObjects().size()));
+        canvas.addPropertyChangeListener(CSVCanvas.TOTAL_PROPERTY,
+                e -> footer.setDrawnObjects(canvas.getDrawnObjects(), canvas.getObjects().size()));
 
         /*
          * ADDING LAYOUT
@@ -120,6 +130,14 @@ public class GUI {
         return csvMouseListener;
     }
 
+    /**
+     * Az újrarajzolásokat ütemező getter.
+     * @return az újrarajzolásokat ütemező példány.
+     */
+    public FrameScheduler getFrameScheduler() {
+        return frameScheduler;
+    }
+
     /**
      * Fájlokat kezelő getter.
      * @return a fájlokat kezelő példány.
@@ -155,9 +173,14 @@ public class GUI {
     /**
      * Az alkalmazást elindító fő függvény. Létrehozza a grafikus megjelenítést.
      * Meghívja a külső könyvtárként hozzáadott megjelenítési témát.
+     * A --batch kapcsolóval grafikus felület nélkül, kötegelten dolgozza fel egy könyvtár fájljait.
      * @param args a program elindítási argumentimai.
+     * @see BatchProcessor
      */
     public static void main(String[] args){
+        if (args.length > 0 && args[0].equals("--batch")) {
+            System.exit(BatchProcessor.run(args));
+        }
         /*
          * Swing témát állít be, hogy ne az alapértelmezett megjelenítést használja a program.
          * https://www.formdev.com/flatlaf/
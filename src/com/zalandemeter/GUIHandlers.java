@@ -1,8 +1,7 @@
 package com.zalandemeter;
 
 import javax.swing.*;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.io.IOException;
 
 /**
  * A GUI-val való interakciók során meghívott fügvényeket csoportosító osztály.
@@ -35,6 +34,11 @@ public class GUIHandlers {
      */
     private final CSVCanvas canvas;
 
+    /**
+     * Az éppen futó háttérbeli fájlbetöltés. Értéke null, ha még nem volt betöltés.
+     */
+    private CSVLoadWorker loadWorker;
+
     /**
      * Az osztály konstruktora. A paraméterül kapott GUI-ból inicializálja az alegységeket.
      * @param gui a kezelendő grafikus megjelenítő.
@@ -46,6 +50,7 @@ public class GUIHandlers {
         csvMouseListener = gui.getCsvMouseListener();
         canvas = gui.getCanvas();
         frame = gui.getFrame();
+        csvFileHandler.setReloadAction(this::loadFile);
     }
 
     /**
@@ -81,11 +86,13 @@ public class GUIHandlers {
             answer = promptSave();
         }
         if ((!csvFileHandler.isEdited()) || answer == JOptionPane.YES_OPTION){
+            cancelLoad();
+            csvFileHandler.stopFollowing();
             csvFileHandler.setCurrentFile(null);
             csvFileHandler.setEdited(false);
             frame.setTitle("CSV Editor");
-            canvas.clearObjects();
             canvas.clearCurve();
+            canvas.releaseObjects();
             canvas.repaint();
         }
     }
@@ -99,13 +106,54 @@ public class GUIHandlers {
             answer = promptSave();
         }
         if ((!csvFileHandler.isEdited()) || answer == JOptionPane.YES_OPTION) {
-            csvFileHandler.selectFile(canvas, CSVFileHandler.ChooseType.open);
-            if (csvFileHandler.getCurrentFile() != null){
-                frame.setTitle("CSV Editor - " + csvFileHandler.getCurrentFile());
+            String filename = csvFileHandler.chooseFile(canvas, CSVFileHandler.ChooseType.open);
+            if (filename != null){
+                loadFile(filename);
             }
         }
     }
 
+    /**
+     * Háttérszálon betölti a paraméterül kapott fájlt egy új tárolóba, amit betöltés közben a vászon mutat.
+     * Az új fájl csak a betöltés sikeres befejezése után lesz az aktuális fájl, megszakítás vagy hiba esetén
+     * az előző fájl objektumai, ívei és állapota maradnak meg.
+     * @param filename a betöltendő fájl abszolút elérési útvonala.
+     */
+    public void loadFile(String filename){
+        cancelLoad();
+        csvFileHandler.stopFollowing();
+        frame.setTitle("CSV Editor - loading " + filename);
+        gui.getFooter().showLoadProgress(0, "Loading...");
+        canvas.repaint();
+        loadWorker = new CSVLoadWorker(gui, filename);
+        loadWorker.execute();
+    }
+
+    /**
+     * Megszakítja a háttérben futó fájlbetöltést, ha van ilyen.
+     */
+    public void cancelLoad(){
+        if (loadWorker != null && !loadWorker.isDone()){
+            loadWorker.cancel(true);
+        }
+    }
+
+    /**
+     * Be- vagy kikapcsolja a megnyitott fájl követését. Bekapcsolt állapotban a fájl végéhez hozzáfűzött
+     * objektumok betöltés nélkül megjelennek a vásznon. Ha a megnyitott fájl nem követhető (pl. tömörített),
+     * a követés kikapcsolva marad.
+     * @param follow igaz, ha a fájlt követni kell.
+     * @return igaz, ha a követés be van kapcsolva.
+     */
+    public boolean setFollowFile(boolean follow){
+        csvFileHandler.setFollowMode(follow);
+        if (csvFileHandler.getCurrentFile() != null && !csvFileHandler.isFollowing()) {
+            csvFileHandler.setFollowMode(false);
+        }
+        gui.getFooter().setLoadStatus(csvFileHandler.isFollowing() ? "Following " + csvFileHandler.getCurrentFile() : "");
+        return csvFileHandler.isFollowMode();
+    }
+
     /**
      * Elmenti az aktuálisan betöltött fájl módosításait.
      */
@@ -130,6 +178,51 @@ public class GUIHandlers {
         }
     }
 
+    /**
+     * Bináris .trk fájlt tölt be. A betöltött pályát mentéskor új CSV fájlba lehet elmenteni.
+     */
+    public void importTrack(){
+        int answer = -1;
+        if (csvFileHandler.isEdited()){
+            answer = promptSave();
+        }
+        if ((!csvFileHandler.isEdited()) || answer == JOptionPane.YES_OPTION) {
+            String filename = csvFileHandler.chooseFile(canvas, CSVFileHandler.ChooseType.open, "Track Files", TrackFormat.EXTENSION);
+            if (filename != null){
+                cancelLoad();
+                csvFileHandler.stopFollowing();
+                if (csvFileHandler.importTrack(filename)){
+                    frame.setTitle("CSV Editor - " + filename + " (imported)");
+                    gui.getFooter().setLoadStatus("");
+                }
+            }
+        }
+    }
+
+    /**
+     * Bináris .trk fájlba menti a vászon objektumait. Az aktuális fájlt és a szerkesztettséget nem módosítja.
+     */
+    public void exportTrack(){
+        String filename = csvFileHandler.chooseFile(canvas, CSVFileHandler.ChooseType.save, "Track Files", TrackFormat.EXTENSION);
+        if (filename != null){
+            csvFileHandler.exportTrack(filename);
+        }
+    }
+
+    /**
+     * Törli a beolvasott fájlok gyorsítótárát.
+     */
+    public void clearCache(){
+        if (csvFileHandler.getCache() != null){
+            try {
+                csvFileHandler.getCache().clear();
+                gui.getFooter().setLoadStatus("Cache cleared");
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
     /**
      * A (0,0) koordinátára egy alapértelezetten fehér színű új elemet helyez el.
      */
@@ -223,11 +316,10 @@ public class GUIHandlers {
     public void setScale(double scale){
         if (scale>=0.1 && scale<=2.1){
             /*
-             * BigDecimal osztály használata, a lebegőpontos értékek kezeléséből adódó pontatlantásgok kiküszöbölésére.
+             * Kerekítés a fájlformátummal megegyező 8 tizedesjegyre, a lebegőpontos értékek kezeléséből adódó
+             * pontatlanságok kiküszöbölésére.
              */
-            BigDecimal bd = new BigDecimal(String.valueOf(scale));
-            bd = bd.setScale(8, RoundingMode.HALF_UP);
-            scale = bd.doubleValue();
+            scale = CSVParser.toDouble(CSVParser.toFixed(scale));
             gui.getCanvas().setScale(scale);
             gui.getFooter().setScale(scale);
             canvas.repaint();
@@ -0,0 +1,91 @@
+package com.zalandemeter;
+
+import java.util.Arrays;
+
+/**
+ * Az objektumokat a Java heap-en, primitív tömbökben tároló lista. Ez az alapértelmezett tárolás.
+ * @author zalandemeter
+ */
+public class HeapConeStore extends ConeStore {
+
+    /**
+     * Az objektumok X koordinátái 1e-8 egységekben.
+     */
+    private long[] x;
+
+    /**
+     * Az objektumok Y koordinátái 1e-8 egységekben.
+     */
+    private long[] y;
+
+    /**
+     * Az objektumok színkódjai.
+     */
+    private byte[] color;
+
+    /**
+     * Az osztály konstruktora.
+     */
+    public HeapConeStore() {
+        free();
+    }
+
+    @Override
+    protected int capacity() {
+        return x.length;
+    }
+
+    @Override
+    protected void grow(int capacity) {
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        color = Arrays.copyOf(color, capacity);
+    }
+
+    @Override
+    protected void shift(int index, int count) {
+        System.arraycopy(x, index + 1, x, index, count);
+        System.arraycopy(y, index + 1, y, index, count);
+        System.arraycopy(color, index + 1, color, index, count);
+    }
+
+    /**
+     * Lecseréli a tömböket a kezdeti méretűekre, a régieket a szemétgyűjtő szabadítja fel.
+     */
+    @Override
+    protected void free() {
+        x = new long[DEFAULT_CAPACITY];
+        y = new long[DEFAULT_CAPACITY];
+        color = new byte[DEFAULT_CAPACITY];
+    }
+
+    @Override
+    public long getFixedX(int index) {
+        return x[index];
+    }
+
+    @Override
+    public long getFixedY(int index) {
+        return y[index];
+    }
+
+    @Override
+    public int getColor(int index) {
+        return color[index];
+    }
+
+    @Override
+    protected void putX(int index, long x) {
+        this.x[index] = x;
+    }
+
+    @Override
+    protected void putY(int index, long y) {
+        this.y[index] = y;
+    }
+
+    @Override
+    protected void putColor(int index, int color) {
+        this.color[index] = (byte) color;
+    }
+}
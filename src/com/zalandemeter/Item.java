@@ -6,19 +6,21 @@ import java.awt.geom.Ellipse2D;
 
 /**
  * A koordináta rendszerben elhelyezett objektumokat valósítja meg.
+ * Egy {@link ConeStore} tárolóhoz kötött objektum a tároló egy elemének nézete: az értékeit a tároló tömbjeiből
+ * olvassa és oda írja. A tárolóból törölt, vagy tárolóhoz nem kötött objektum a saját mezőiben tárolja az értékeit.
  * @author zalandemeter
  */
 public class Item {
 
     /**
-     * Az objektum X koordinátája.
+     * Az objektum X koordinátája 1e-8 egységekben.
      */
-    private double x;
+    private long x;
 
     /**
-     * Az objektum Y koordinátája.
+     * Az objektum Y koordinátája 1e-8 egységekben.
      */
-    private double y;
+    private long y;
 
     /**
      * Az objektum színét azonosító kódszám.<br>
@@ -31,6 +33,26 @@ public class Item {
      */
     private boolean selected;
 
+    /**
+     * A tároló, aminek ez az objektum a nézete. Értéke null, ha az objektum nem kötődik tárolóhoz.
+     */
+    private ConeStore store;
+
+    /**
+     * Az objektum indexe a tárolóban.
+     */
+    private int index;
+
+    /**
+     * A narancssárga objektumok színe.
+     */
+    public static final Color ORANGE = new Color(255,110,0);
+
+    /**
+     * A kijelölt objektumok közepén megjelenő jelölés színe.
+     */
+    public static final Color SELECTED_COLOR = new Color(48,48,48);
+
     /**
      * Az objektumok kirajzolási mérete, alapártelmezetten {@value}.
      */
@@ -42,14 +64,14 @@ public class Item {
     private static int objectDistance = 50;
 
     /**
-     * Az objektumok konstruktora.
+     * Az objektumok konstruktora. A koordinátákat 8 tizedesjegyre kerekíti.
      * @param x x koordináta
      * @param y y koordináta
      * @param color színkód
      */
     public Item(double x, double y, int color){
-        this.x = x;
-        this.y = y;
+        this.x = CSVParser.toFixed(x);
+        this.y = CSVParser.toFixed(y);
         this.color = color;
         selected = false;
     }
@@ -59,31 +81,53 @@ public class Item {
      * @param ourGraphics kirajzolás helye
      */
     public void paintComponent(Graphics2D ourGraphics){
-        /*
-         * Az értékek tárolási módjából adódóan a színeket egész számokra kódolva tároljuk.
-         * Itt történik a szín dekódolása.
-         */
-        switch (color){
-            case 0: ourGraphics.setColor(Color.WHITE); break;
-            case 1: ourGraphics.setColor(Color.BLUE); break;
-            case 2: ourGraphics.setColor(Color.YELLOW); break;
-            case 3: ourGraphics.setColor(Color.RED); break;
-            case 4: ourGraphics.setColor(new Color(255,110,0)); break;
-            default: break;
+        paint(ourGraphics, getX(), getY(), getColor(), isSelected());
+    }
+
+    /**
+     * A paraméterül kapott Graphics2D változóra kirajzol egy objektumot, objektum példány nélkül.
+     * @param ourGraphics kirajzolás helye
+     * @param x x koordináta
+     * @param y y koordináta
+     * @param color színkód
+     * @param selected ki van-e jelölve az objektum
+     */
+    public static void paint(Graphics2D ourGraphics, double x, double y, int color, boolean selected){
+        Color paintColor = getPaintColor(color);
+        if (paintColor != null) {
+            ourGraphics.setColor(paintColor);
         }
         ourGraphics.fill(new Ellipse2D.Double((x*objectDistance)-(objectSize/2.0),(y*objectDistance)-(objectSize/2.0),objectSize,objectSize));
         if (selected) {
-            ourGraphics.setColor(new Color(48,48,48));
+            ourGraphics.setColor(SELECTED_COLOR);
             ourGraphics.fill(new Ellipse2D.Double((x*objectDistance)-(objectSize*0.5/2.0),(y*objectDistance)-(objectSize*0.5/2.0),objectSize*0.5,objectSize*0.5));
         }
     }
 
+    /**
+     * A színkódhoz tartozó kirajzolási szín.
+     * Az értékek tárolási módjából adódóan a színeket egész számokra kódolva tároljuk.
+     * Itt történik a szín dekódolása.
+     * @param color színkód
+     * @return a kirajzolás színe, vagy null ismeretlen színkód esetén.
+     */
+    public static Color getPaintColor(int color){
+        switch (color){
+            case 0: return Color.WHITE;
+            case 1: return Color.BLUE;
+            case 2: return Color.YELLOW;
+            case 3: return Color.RED;
+            case 4: return ORANGE;
+            default: return null;
+        }
+    }
+
     /**
      * X koordináta getter.
      * @return az objektum X koordinátája.
      */
     public double getX() {
-        return x;
+        return CSVParser.toDouble(getFixedX());
     }
 
     /**
@@ -91,7 +135,23 @@ public class Item {
      * @return az objektum Y koordinátája.
      */
     public double getY() {
-        return y;
+        return CSVParser.toDouble(getFixedY());
+    }
+
+    /**
+     * Fixpontos X koordináta getter.
+     * @return az objektum X koordinátája 1e-8 egységekben.
+     */
+    public long getFixedX() {
+        return store != null ? store.getFixedX(index) : x;
+    }
+
+    /**
+     * Fixpontos Y koordináta getter.
+     * @return az objektum Y koordinátája 1e-8 egységekben.
+     */
+    public long getFixedY() {
+        return store != null ? store.getFixedY(index) : y;
     }
 
     /**
@@ -99,7 +159,7 @@ public class Item {
      * @return az objektum színkódja.
      */
     public int getColor() {
-        return color;
+        return store != null ? store.getColor(index) : color;
     }
 
     /**
@@ -119,19 +179,27 @@ public class Item {
     }
 
     /**
-     * X koordináta setter.
+     * X koordináta setter. Az értéket 8 tizedesjegyre kerekíti.
      * @param x beállítandó X koordináta érték.
      */
     public void setX(double x) {
-        this.x = x;
+        if (store != null) {
+            store.setX(index, x);
+        } else {
+            this.x = CSVParser.toFixed(x);
+        }
     }
 
     /**
-     * Y koordináta setter.
+     * Y koordináta setter. Az értéket 8 tizedesjegyre kerekíti.
      * @param y beállítandó X koordináta érték.
      */
     public void setY(double y) {
-        this.y = y;
+        if (store != null) {
+            store.setY(index, y);
+        } else {
+            this.y = CSVParser.toFixed(y);
+        }
     }
 
     /**
@@ -139,7 +207,11 @@ public class Item {
      * @param color beállítandó színkód érték.
      */
     public void setColor(int color) {
-        this.color = color;
+        if (store != null) {
+            store.setColor(index, color);
+        } else {
+            this.color = color;
+        }
     }
 
     /**
@@ -147,7 +219,11 @@ public class Item {
      * @param selected igaz, ha az objektumot ki szeretnénk jelölni.
      */
     public void setSelected(boolean selected){
-        this.selected = selected;
+        if (store != null) {
+            store.setSelected(index, selected);
+        } else {
+            this.selected = selected;
+        }
     }
 
     /**
@@ -155,7 +231,55 @@ public class Item {
      * @return ki van-e jelölve az objektum.
      */
     public boolean isSelected() {
-        return selected;
+        return store != null ? store.isSelected(index) : selected;
+    }
+
+    /**
+     * A tároló egy elemének nézetévé teszi az objektumot. A saját mezőiben tárolt értékeket nem használja tovább.
+     * @param store a tároló.
+     * @param index az objektum indexe a tárolóban.
+     */
+    void attach(ConeStore store, int index) {
+        this.store = store;
+        this.index = index;
+    }
+
+    /**
+     * Leválasztja az objektumot a tárolóról, az aktuális értékeit a saját mezőibe másolja.
+     */
+    void detach() {
+        if (store != null) {
+            x = store.getFixedX(index);
+            y = store.getFixedY(index);
+            color = store.getColor(index);
+            selected = store.isSelected(index);
+            store = null;
+        }
+    }
+
+    /**
+     * Megadja, hogy az objektum egy tároló nézete-e.
+     * @return igaz, ha az objektum tárolóhoz kötődik.
+     */
+    boolean isAttached() {
+        return store != null;
+    }
+
+    /**
+     * Megadja, hogy az objektum a paraméterül kapott tároló nézete-e.
+     * @param store a tároló.
+     * @return igaz, ha az objektum ehhez a tárolóhoz kötődik.
+     */
+    boolean isAttachedTo(ConeStore store) {
+        return this.store == store;
+    }
+
+    /**
+     * Az objektum tárolóbeli indexéhez tartozó getter.
+     * @return az objektum indexe a tárolóban.
+     */
+    int getIndex() {
+        return index;
     }
 
     /**
@@ -0,0 +1,190 @@
+package com.zalandemeter;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Az objektumok koordinátáit és színkódjait a Java heap-en kívül, közvetlen (direct) pufferekben tároló lista.
+ * Több millió objektum esetén sem növeli a heap méretét, és a szemétgyűjtőnek sem kell végigjárnia.
+ * A puffereket a {@link #release()} azonnal felszabadítja, nem várja meg a szemétgyűjtést.
+ * Egy oszlop legfeljebb 2 GB lehet, ez 268 millió objektum.
+ * @author zalandemeter
+ */
+public class OffHeapConeStore extends ConeStore {
+
+    /**
+     * A közvetlen pufferek azonnali felszabadítására szolgáló objektum, vagy null ha nem érhető el.
+     */
+    private static final Object UNSAFE;
+
+    /**
+     * A közvetlen puffert felszabadító függvény, vagy null ha nem érhető el.
+     */
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            e.printStackTrace();
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    /**
+     * Az objektumok X koordinátái 1e-8 egységekben, objektumonként 8 bájt.
+     */
+    private ByteBuffer x;
+
+    /**
+     * Az objektumok Y koordinátái 1e-8 egységekben, objektumonként 8 bájt.
+     */
+    private ByteBuffer y;
+
+    /**
+     * Az objektumok színkódjai, objektumonként 1 bájt.
+     */
+    private ByteBuffer color;
+
+    /**
+     * Az oszlopok mérete.
+     */
+    private int capacity;
+
+    /**
+     * Az osztály konstruktora.
+     */
+    public OffHeapConeStore() {
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Lefoglalja a megadott méretű oszlopokat.
+     * @param capacity az oszlopok mérete.
+     */
+    private void allocate(int capacity) {
+        this.capacity = capacity;
+        x = ByteBuffer.allocateDirect(Math.multiplyExact(capacity, Long.BYTES)).order(ByteOrder.nativeOrder());
+        y = ByteBuffer.allocateDirect(Math.multiplyExact(capacity, Long.BYTES)).order(ByteOrder.nativeOrder());
+        color = ByteBuffer.allocateDirect(capacity);
+    }
+
+    @Override
+    protected int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Egy koordináta oszlop legfeljebb 2 GB lehet.
+     * @return a tárolható objektumok legnagyobb száma.
+     */
+    @Override
+    protected int maxCapacity() {
+        return Integer.MAX_VALUE / Long.BYTES;
+    }
+
+    @Override
+    protected void grow(int capacity) {
+        ByteBuffer oldX = x;
+        ByteBuffer oldY = y;
+        ByteBuffer oldColor = color;
+        allocate(capacity);
+        x.put(oldX.duplicate().clear());
+        y.put(oldY.duplicate().clear());
+        color.put(oldColor.duplicate().clear());
+        release(oldX);
+        release(oldY);
+        release(oldColor);
+    }
+
+    @Override
+    protected void shift(int index, int count) {
+        shift(x, index * Long.BYTES, count * Long.BYTES, Long.BYTES);
+        shift(y, index * Long.BYTES, count * Long.BYTES, Long.BYTES);
+        shift(color, index, count, 1);
+    }
+
+    /**
+     * A puffer egy szakaszát egy elemmel előrébb másolja.
+     * @param buffer a puffer.
+     * @param position az első felülírt bájt.
+     * @param length a másolandó bájtok száma.
+     * @param width egy elem mérete bájtban.
+     */
+    private static void shift(ByteBuffer buffer, int position, int length, int width) {
+        ByteBuffer source = buffer.duplicate();
+        source.limit(position + width + length).position(position + width);
+        ByteBuffer target = buffer.duplicate();
+        target.position(position);
+        target.put(source);
+    }
+
+    /**
+     * Azonnal felszabadítja a jelenlegi puffereket, és kezdeti méretűeket foglal helyettük.
+     */
+    @Override
+    protected void free() {
+        ByteBuffer oldX = x;
+        ByteBuffer oldY = y;
+        ByteBuffer oldColor = color;
+        allocate(DEFAULT_CAPACITY);
+        release(oldX);
+        release(oldY);
+        release(oldColor);
+    }
+
+    /**
+     * Azonnal felszabadítja a közvetlen puffer memóriáját. Ha erre nincs lehetőség, a szemétgyűjtő szabadítja fel.
+     * A puffert utána nem szabad használni.
+     * @param buffer a felszabadítandó puffer.
+     */
+    private static void release(ByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (ReflectiveOperationException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public long getFixedX(int index) {
+        return x.getLong(index * Long.BYTES);
+    }
+
+    @Override
+    public long getFixedY(int index) {
+        return y.getLong(index * Long.BYTES);
+    }
+
+    @Override
+    public int getColor(int index) {
+        return color.get(index);
+    }
+
+    @Override
+    protected void putX(int index, long x) {
+        this.x.putLong(index * Long.BYTES, x);
+    }
+
+    @Override
+    protected void putY(int index, long y) {
+        this.y.putLong(index * Long.BYTES, y);
+    }
+
+    @Override
+    protected void putColor(int index, int color) {
+        this.color.put(index, (byte) color);
+    }
+}
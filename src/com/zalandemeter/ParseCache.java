@@ -0,0 +1,241 @@
+package com.zalandemeter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.zip.CRC32C;
+
+/**
+ * Beolvasott CSV fájlok bináris (.trk) pillanatképeit tároló gyorsítótár.
+ * A bejegyzések kulcsa a fájl abszolút elérési útvonalából, méretéből, módosítási idejéből és tartalmának
+ * CRC32C ellenőrzőösszegéből képzett SHA-256 kivonat, így a fájl bármilyen módosítása után a régi bejegyzés
+ * már nem található meg. A gyorsítótár méretét korlátozza, a legrégebben használt bejegyzéseket törli.
+ * @author zalandemeter
+ */
+public class ParseCache {
+
+    /**
+     * A gyorsítótárat kikapcsoló rendszertulajdonság neve (-Dcsveditor.cache=false).
+     */
+    public static final String ENABLED_PROPERTY = "csveditor.cache";
+
+    /**
+     * A gyorsítótár könyvtárát megadó rendszertulajdonság neve.
+     */
+    public static final String DIR_PROPERTY = "csveditor.cache.dir";
+
+    /**
+     * A gyorsítótár maximális méretét megabájtban megadó rendszertulajdonság neve.
+     */
+    public static final String SIZE_PROPERTY = "csveditor.cache.size";
+
+    /**
+     * A gyorsítótár alapértelmezett maximális mérete megabájtban.
+     */
+    private static final long DEFAULT_SIZE_MB = 512;
+
+    /**
+     * Az ellenőrzőösszeg számításakor használt olvasási puffer mérete bájtokban.
+     */
+    private static final int READ_BUFFER = 1 << 20;
+
+    /**
+     * A gyorsítótár könyvtára.
+     */
+    private final Path directory;
+
+    /**
+     * A gyorsítótárban tárolt fájlok összméretének felső korlátja bájtokban.
+     */
+    private final long maxBytes;
+
+    /**
+     * Az osztály konstruktora.
+     * @param directory a gyorsítótár könyvtára, szükség esetén létrehozza.
+     * @param maxBytes a tárolt fájlok összméretének felső korlátja bájtokban.
+     */
+    public ParseCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * A rendszertulajdonságok alapján hozza létre a gyorsítótárat.
+     * Alapértelmezetten a felhasználó könyvtárában lévő .csv-editor/cache könyvtárat használja.
+     * @return a gyorsítótár, vagy null ha ki van kapcsolva.
+     */
+    public static ParseCache fromSystemProperties() {
+        if (!Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true"))) {
+            return null;
+        }
+        Path directory = Paths.get(System.getProperty(DIR_PROPERTY,
+                Paths.get(System.getProperty("user.home"), ".csv-editor", "cache").toString()));
+        long sizeMB = Long.getLong(SIZE_PROPERTY, DEFAULT_SIZE_MB);
+        return new ParseCache(directory, sizeMB << 20);
+    }
+
+    /**
+     * Kiszámolja a fájlhoz tartozó gyorsítótár kulcsot. Ehhez a teljes fájlt végigolvassa.
+     * @param filename a fájl neve.
+     * @return a kulcs hexadecimális alakban.
+     * @throws IOException olvasási hiba esetén.
+     */
+    public String key(String filename) throws IOException {
+        Path path = Paths.get(filename).toAbsolutePath();
+        CRC32C crc = new CRC32C();
+        long size;
+        FileTime modified = Files.getLastModifiedTime(path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            size = channel.size();
+            /*
+             * Pozícionált olvasással, leképezés nélkül: egy élő leképezés Windowson a szemétgyűjtésig
+             * megakadályozná a most megnyitott fájl felülírását.
+             */
+            ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER);
+            long offset = 0;
+            while (offset < size) {
+                buffer.clear();
+                int read = channel.read(buffer, offset);
+                if (read < 0) {
+                    break;
+                }
+                buffer.flip();
+                crc.update(buffer);
+                offset += read;
+            }
+        }
+        String key = path + "|" + size + "|" + modified.toMillis() + "|" + Long.toHexString(crc.getValue());
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b: digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Betölti a kulcshoz tartozó pillanatképet, és frissíti a bejegyzés használati idejét.
+     * A sérült bejegyzéseket törli.
+     * @param key a gyorsítótár kulcs.
+     * @return a tárolt pálya, vagy null ha nincs ilyen bejegyzés.
+     */
+    public TrackFormat.Track load(String key) {
+        Path entry = directory.resolve(key + "." + TrackFormat.EXTENSION);
+        if (!Files.isRegularFile(entry)) {
+            return null;
+        }
+        try {
+            TrackFormat.Track track = TrackFormat.read(entry.toString());
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+            return track;
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(entry);
+            } catch (IOException ignored) {
+                /*
+                 * A sérült bejegyzést a következő kiürítéskor töröljük.
+                 */
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Eltárolja a pillanatképet a kulcshoz, majd a méretkorlát túllépése esetén törli a legrégebben használt bejegyzéseket.
+     * A bejegyzést ideiglenes fájlba írja és átnevezi, így félkész bejegyzés nem kerülhet a gyorsítótárba.
+     * @param key a gyorsítótár kulcs.
+     * @param track a tárolandó pálya.
+     * @throws IOException írási hiba esetén.
+     */
+    public void store(String key, TrackFormat.Track track) throws IOException {
+        Files.createDirectories(directory);
+        Path entry = directory.resolve(key + "." + TrackFormat.EXTENSION);
+        Path temp = Files.createTempFile(directory, key, ".tmp");
+        try {
+            TrackFormat.write(temp.toString(), track);
+            Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        evict();
+    }
+
+    /**
+     * A legrégebben használt bejegyzéseket törli, amíg a tárolt fájlok összmérete a korlát fölött van.
+     * @throws IOException a könyvtár olvasásakor fellépő hiba esetén.
+     */
+    private void evict() throws IOException {
+        ArrayList<Path> entries = entries();
+        HashMap<Path, Long> lastUsed = new HashMap<>();
+        long total = 0;
+        for (Path entry: entries) {
+            total += Files.size(entry);
+            lastUsed.put(entry, Files.getLastModifiedTime(entry).toMillis());
+        }
+        if (total <= maxBytes) {
+            return;
+        }
+        entries.sort(Comparator.comparingLong(lastUsed::get));
+        for (Path entry: entries) {
+            if (total <= maxBytes) {
+                break;
+            }
+            long size = Files.size(entry);
+            Files.deleteIfExists(entry);
+            total -= size;
+        }
+    }
+
+    /**
+     * Törli a gyorsítótár összes bejegyzését.
+     * @throws IOException törlési hiba esetén.
+     */
+    public void clear() throws IOException {
+        for (Path entry: entries()) {
+            Files.deleteIfExists(entry);
+        }
+    }
+
+    /**
+     * A gyorsítótár bejegyzéseinek listája.
+     * @return a könyvtárban lévő .trk fájlok.
+     * @throws IOException a könyvtár olvasásakor fellépő hiba esetén.
+     */
+    private ArrayList<Path> entries() throws IOException {
+        ArrayList<Path> entries = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return entries;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*." + TrackFormat.EXTENSION)) {
+            for (Path entry: stream) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * A gyorsítótár könyvtárához tartozó getter.
+     * @return a gyorsítótár könyvtára.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+}
@@ -0,0 +1,94 @@
+package com.zalandemeter;
+
+import java.util.Arrays;
+
+/**
+ * Beolvasott sorokat primitív tömbökben tároló, növekvő méretű puffer.
+ * A sorokat később sorrendben vissza lehet játszani, vagy .trk pályává lehet alakítani.
+ * @author zalandemeter
+ */
+public class RowBuffer implements CSVParser.RowHandler {
+
+    /**
+     * A beolvasott X koordináták 1e-8 egységekben.
+     */
+    private long[] x;
+
+    /**
+     * A beolvasott Y koordináták 1e-8 egységekben.
+     */
+    private long[] y;
+
+    /**
+     * A beolvasott színkódok.
+     */
+    private int[] color;
+
+    /**
+     * A tárolt sorok száma.
+     */
+    private int size;
+
+    /**
+     * Az osztály konstruktora.
+     * @param capacity a várható sorok száma.
+     */
+    public RowBuffer(int capacity) {
+        x = new long[capacity];
+        y = new long[capacity];
+        color = new int[capacity];
+    }
+
+    /**
+     * Eltárol egy sort, szükség esetén megnöveli a tömböket.
+     * @param x X koordináta 1e-8 egységekben.
+     * @param y Y koordináta 1e-8 egységekben.
+     * @param color színkód.
+     */
+    @Override
+    public void row(long x, long y, int color) {
+        if (size == this.x.length) {
+            int capacity = size + (size >> 1) + 16;
+            this.x = Arrays.copyOf(this.x, capacity);
+            this.y = Arrays.copyOf(this.y, capacity);
+            this.color = Arrays.copyOf(this.color, capacity);
+        }
+        this.x[size] = x;
+        this.y[size] = y;
+        this.color[size] = color;
+        size++;
+    }
+
+    /**
+     * A tárolt sorokat sorrendben átadja a paraméterül kapott példánynak.
+     * @param handler a sorokat fogadó példány.
+     */
+    public void replay(CSVParser.RowHandler handler) {
+        for (int i = 0; i < size; i++) {
+            handler.row(x[i], y[i], color[i]);
+        }
+    }
+
+    /**
+     * A tárolt sorokat .trk pályává alakítja.
+     * @return a pálya, vagy null ha valamelyik színkód nem fér el egy bájton.
+     */
+    public TrackFormat.Track toTrack() {
+        byte[] colors = new byte[size];
+        for (int i = 0; i < size; i++) {
+            if (color[i] < Byte.MIN_VALUE || color[i] > Byte.MAX_VALUE) {
+                return null;
+            }
+            colors[i] = (byte) color[i];
+        }
+        return new TrackFormat.Track(Arrays.copyOf(x, size), Arrays.copyOf(y, size), colors);
+    }
+
+    /**
+     * A tárolt sorok számához tartozó getter.
+     * @return a tárolt sorok száma.
+     */
+    public int size() {
+        return size;
+    }
+}
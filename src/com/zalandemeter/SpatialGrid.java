@@ -0,0 +1,329 @@
+package com.zalandemeter;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Egyenletes rács alapú térbeli index egy {@link ConeStore} tároló objektumaihoz.
+ * A síkot azonos méretű cellákra osztja, és cellánként láncolt listában tárolja a benne lévő objektumok indexeit.
+ * Egy pont körüli keresés így csak a pont körüli néhány cellát vizsgálja, nem az összes objektumot.
+ * A cellákat nyílt címzésű hasítótábla tárolja, a láncot objektumonként egy int, így nagy tárolóhoz is kevés memóriát foglal.
+ * A rácsot a tároló tartja karban hozzáadáskor, törléskor és a koordináták módosításakor.
+ * @author zalandemeter
+ */
+public class SpatialGrid {
+
+    /**
+     * A cellák alapértelmezett mérete 1e-8 egységekben, {@value}, azaz egy egység a koordinátarendszerben.
+     */
+    public static final long DEFAULT_CELL_SIZE = CSVParser.SCALE;
+
+    /**
+     * A lánc végét és az üres cellát jelölő index.
+     */
+    private static final int NONE = -1;
+
+    /**
+     * Az indexelt tároló.
+     */
+    private final ConeStore store;
+
+    /**
+     * A cellák mérete 1e-8 egységekben.
+     */
+    private final long cellSize;
+
+    /**
+     * A hasítótábla celláinak X indexei.
+     */
+    private long[] cellX;
+
+    /**
+     * A hasítótábla celláinak Y indexei.
+     */
+    private long[] cellY;
+
+    /**
+     * A hasítótábla celláiban lévő láncok első eleme, {@link #NONE} ha a cella üres.
+     */
+    private int[] heads;
+
+    /**
+     * Igaz, ha a hasítótábla adott helye foglalt.
+     */
+    private boolean[] used;
+
+    /**
+     * A hasítótábla foglalt helyeinek száma.
+     */
+    private int cells;
+
+    /**
+     * Objektumonként a láncban következő objektum indexe, vagy {@link #NONE}.
+     */
+    private int[] next;
+
+    /**
+     * Az osztály konstruktora, felépíti a tároló összes objektumának indexét.
+     * @param store az indexelt tároló.
+     * @param cellSize a cellák mérete 1e-8 egységekben.
+     */
+    public SpatialGrid(ConeStore store, long cellSize) {
+        this.store = store;
+        this.cellSize = cellSize;
+        allocateCells(16);
+        next = new int[Math.max(16, store.size())];
+        for (int i = 0; i < store.size(); i++) {
+            add(i);
+        }
+    }
+
+    /**
+     * Lefoglalja a megadott méretű üres hasítótáblát.
+     * @param length a tábla mérete, kettő hatványa.
+     */
+    private void allocateCells(int length) {
+        cellX = new long[length];
+        cellY = new long[length];
+        heads = new int[length];
+        used = new boolean[length];
+        cells = 0;
+    }
+
+    /**
+     * Az 1e-8 egységű koordinátához tartozó cella indexe.
+     */
+    private long cell(long value) {
+        return Math.floorDiv(value, cellSize);
+    }
+
+    /**
+     * A cella helye a hasítótáblában. Ha a cella még nincs a táblában és create igaz, felveszi üres lánccal.
+     * @return a cella helye, vagy -1 ha nincs a táblában.
+     */
+    private int slot(long x, long y, boolean create) {
+        int mask = heads.length - 1;
+        long hash = x * 0x9E3779B97F4A7C15L + y * 0xC2B2AE3D27D4EB4FL;
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        while (used[slot]) {
+            if (cellX[slot] == x && cellY[slot] == y) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (!create) {
+            return -1;
+        }
+        if ((cells + 1) * 2 > heads.length) {
+            rehash();
+            return slot(x, y, true);
+        }
+        used[slot] = true;
+        cellX[slot] = x;
+        cellY[slot] = y;
+        heads[slot] = NONE;
+        cells++;
+        return slot;
+    }
+
+    /**
+     * Kétszeres méretű táblába helyezi át a cellákat. Az üressé vált cellákat elhagyja.
+     */
+    private void rehash() {
+        long[] oldX = cellX;
+        long[] oldY = cellY;
+        int[] oldHeads = heads;
+        boolean[] oldUsed = used;
+        int live = 0;
+        for (int i = 0; i < oldHeads.length; i++) {
+            if (oldUsed[i] && oldHeads[i] != NONE) {
+                live++;
+            }
+        }
+        int length = oldHeads.length;
+        while ((live + 1) * 4 > length) {
+            length <<= 1;
+        }
+        allocateCells(length);
+        for (int i = 0; i < oldHeads.length; i++) {
+            if (oldUsed[i] && oldHeads[i] != NONE) {
+                heads[slot(oldX[i], oldY[i], true)] = oldHeads[i];
+            }
+        }
+    }
+
+    /**
+     * Felveszi az indexbe a tároló index-edik objektumát a jelenlegi koordinátái alapján.
+     * @param index az objektum indexe.
+     */
+    public void add(int index) {
+        if (index >= next.length) {
+            next = Arrays.copyOf(next, Math.max(index + 1, next.length + (next.length >> 1)));
+        }
+        link(index, store.getFixedX(index), store.getFixedY(index));
+    }
+
+    /**
+     * A megadott koordinátájú cella láncának elejére fűzi az objektumot.
+     */
+    private void link(int index, long x, long y) {
+        int slot = slot(cell(x), cell(y), true);
+        next[index] = heads[slot];
+        heads[slot] = index;
+    }
+
+    /**
+     * Kiveszi az objektumot a megadott koordinátájú cella láncából.
+     */
+    private void unlink(int index, long x, long y) {
+        int slot = slot(cell(x), cell(y), false);
+        if (slot < 0) {
+            return;
+        }
+        if (heads[slot] == index) {
+            heads[slot] = next[index];
+            return;
+        }
+        for (int i = heads[slot]; i != NONE; i = next[i]) {
+            if (next[i] == index) {
+                next[i] = next[index];
+                return;
+            }
+        }
+    }
+
+    /**
+     * Az objektum áthelyezésekor frissíti az indexet. Ha a cella nem változik, nem csinál semmit.
+     * @param index az objektum indexe.
+     * @param oldX a régi X koordináta 1e-8 egységekben.
+     * @param oldY a régi Y koordináta 1e-8 egységekben.
+     * @param newX az új X koordináta 1e-8 egységekben.
+     * @param newY az új Y koordináta 1e-8 egységekben.
+     */
+    public void move(int index, long oldX, long oldY, long newX, long newY) {
+        if (cell(oldX) != cell(newX) || cell(oldY) != cell(newY)) {
+            unlink(index, oldX, oldY);
+            link(index, newX, newY);
+        }
+    }
+
+    /**
+     * Kiveszi az indexből a tároló index-edik objektumát, és a mögötte lévő, [index + 1, end) tartománybeli objektumok
+     * indexét eggyel csökkenti, a tárolóbeli törlésnek megfelelően. Az áthelyezett objektumoknak csak a saját cellájuk
+     * láncát módosítja, a teljes táblát nem járja be. A tárolóból való törlés előtt kell meghívni.
+     * @param index a törlendő objektum indexe.
+     * @param end az eggyel előrébb lépő tartomány vége, a tároló mérete.
+     */
+    public void remove(int index, int end) {
+        unlink(index, store.getFixedX(index), store.getFixedY(index));
+        for (int i = index + 1; i < end; i++) {
+            relabel(i, store.getFixedX(i), store.getFixedY(i));
+        }
+        if (end > index) {
+            next[end - 1] = NONE;
+        }
+    }
+
+    /**
+     * Eggyel kisebb indexre cseréli az objektumot a megadott koordinátájú cella láncában.
+     * Növekvő sorrendben kell hívni, így az eggyel kisebb index már szabad.
+     */
+    private void relabel(int index, long x, long y) {
+        int slot = slot(cell(x), cell(y), false);
+        if (slot < 0) {
+            return;
+        }
+        if (heads[slot] == index) {
+            heads[slot] = index - 1;
+        } else {
+            for (int i = heads[slot]; i != NONE; i = next[i]) {
+                if (next[i] == index) {
+                    next[i] = index - 1;
+                    break;
+                }
+            }
+        }
+        next[index - 1] = next[index];
+    }
+
+    /**
+     * Megkeresi a ponthoz legközelebbi objektumot a megadott sugáron belül. Csak a sugár által érintett cellákat vizsgálja.
+     * @param x a pont X koordinátája.
+     * @param y a pont Y koordinátája.
+     * @param radius a keresés sugara.
+     * @return a legközelebbi objektum indexe, vagy -1 ha a sugáron belül nincs objektum.
+     */
+    public int nearest(double x, double y, double radius) {
+        double cellWidth = cellSize / (double) CSVParser.SCALE;
+        long minX = (long) Math.floor((x - radius) / cellWidth);
+        long maxX = (long) Math.floor((x + radius) / cellWidth);
+        long minY = (long) Math.floor((y - radius) / cellWidth);
+        long maxY = (long) Math.floor((y + radius) / cellWidth);
+        int best = NONE;
+        double bestDistance = radius * radius;
+        for (long cx = minX; cx <= maxX; cx++) {
+            for (long cy = minY; cy <= maxY; cy++) {
+                int slot = slot(cx, cy, false);
+                if (slot < 0) {
+                    continue;
+                }
+                for (int i = heads[slot]; i != NONE; i = next[i]) {
+                    double dx = store.getX(i) - x;
+                    double dy = store.getY(i) - y;
+                    double distance = dx * dx + dy * dy;
+                    if (distance < bestDistance) {
+                        best = i;
+                        bestDistance = distance;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * A téglalap által érintett cellák száma.
+     * @param minX a téglalap bal széle.
+     * @param minY a téglalap felső széle.
+     * @param maxX a téglalap jobb széle.
+     * @param maxY a téglalap alsó széle.
+     * @return az érintett cellák száma, lebegőpontosan, hogy nagy téglalapnál se csorduljon túl.
+     */
+    public double cellCount(double minX, double minY, double maxX, double maxY) {
+        double cellWidth = cellSize / (double) CSVParser.SCALE;
+        return (Math.floor(maxX / cellWidth) - Math.floor(minX / cellWidth) + 1)
+                * (Math.floor(maxY / cellWidth) - Math.floor(minY / cellWidth) + 1);
+    }
+
+    /**
+     * Végighalad a téglalapba eső objektumokon. Csak a téglalap által érintett cellákat vizsgálja,
+     * az objektumokat nem a tárolóbeli sorrendjükben adja vissza.
+     * @param minX a téglalap bal széle.
+     * @param minY a téglalap felső széle.
+     * @param maxX a téglalap jobb széle.
+     * @param maxY a téglalap alsó széle.
+     * @param action a téglalapba eső objektumok indexét kapja meg.
+     */
+    public void forEachIn(double minX, double minY, double maxX, double maxY, IntConsumer action) {
+        double cellWidth = cellSize / (double) CSVParser.SCALE;
+        long fromX = (long) Math.floor(minX / cellWidth);
+        long toX = (long) Math.floor(maxX / cellWidth);
+        long fromY = (long) Math.floor(minY / cellWidth);
+        long toY = (long) Math.floor(maxY / cellWidth);
+        for (long cx = fromX; cx <= toX; cx++) {
+            for (long cy = fromY; cy <= toY; cy++) {
+                int slot = slot(cx, cy, false);
+                if (slot < 0) {
+                    continue;
+                }
+                for (int i = heads[slot]; i != NONE; i = next[i]) {
+                    double x = store.getX(i);
+                    double y = store.getY(i);
+                    if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                        action.accept(i);
+                    }
+                }
+            }
+        }
+    }
+}
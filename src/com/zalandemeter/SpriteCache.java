@@ -0,0 +1,109 @@
+package com.zalandemeter;
+
+import java.awt.*;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Az objektumok előre kirajzolt képeit tároló gyorsítótár.
+ * Minden szín és kijelöltség kombinációhoz egy kis, élsimított képet rajzol az aktuális objektumméretnek és nagyításnak
+ * megfelelő pixelméretben, így a vászon kirajzolásakor objektumonként csak egy kép másolása történik.
+ * A képeket újrarajzolja, ha az objektumok mérete vagy a nagyítás megváltozik.
+ * @author zalandemeter
+ */
+public class SpriteCache {
+
+    /**
+     * A gyorsítótárban tárolt színkódok száma, a 0 és 4 közötti színkódokhoz tárol képet.
+     */
+    public static final int COLORS = 5;
+
+    /**
+     * A képek színkódonként, a nem kijelölt és a kijelölt változat.
+     */
+    private final BufferedImage[][] sprites;
+
+    /**
+     * Az objektumok mérete, amihez a képek készültek.
+     */
+    private int objectSize;
+
+    /**
+     * A nagyítás, amihez a képek készültek.
+     */
+    private double scale;
+
+    /**
+     * A képek oldalhossza pixelben.
+     */
+    private int spriteSize;
+
+    /**
+     * Az osztály konstruktora. A képeket csak az első {@link #update} hívás rajzolja meg.
+     */
+    public SpriteCache() {
+        sprites = new BufferedImage[COLORS][2];
+        scale = Double.NaN;
+    }
+
+    /**
+     * Újrarajzolja a képeket, ha az objektumok mérete vagy a nagyítás megváltozott.
+     * @param objectSize az objektumok kirajzolási mérete.
+     * @param scale a nagyítás, a kirajzolás teljes transzformációjának léptéke.
+     * @param configuration a kirajzolás helyének grafikus konfigurációja, vagy null.
+     * @return igaz, ha a képek újra lettek rajzolva.
+     */
+    public boolean update(int objectSize, double scale, GraphicsConfiguration configuration) {
+        if (objectSize == this.objectSize && scale == this.scale) {
+            return false;
+        }
+        this.objectSize = objectSize;
+        this.scale = scale;
+        double diameter = objectSize * scale;
+        spriteSize = (int) Math.ceil(diameter) + 2;
+        for (int color = 0; color < COLORS; color++) {
+            for (int selected = 0; selected < 2; selected++) {
+                BufferedImage sprite = configuration != null
+                        ? configuration.createCompatibleImage(spriteSize, spriteSize, Transparency.TRANSLUCENT)
+                        : new BufferedImage(spriteSize, spriteSize, BufferedImage.TYPE_INT_ARGB_PRE);
+                Graphics2D graphics = sprite.createGraphics();
+                try {
+                    graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                    double center = spriteSize / 2.0;
+                    graphics.setColor(Item.getPaintColor(color));
+                    graphics.fill(new Ellipse2D.Double(center - diameter / 2, center - diameter / 2, diameter, diameter));
+                    if (selected == 1) {
+                        graphics.setColor(Item.SELECTED_COLOR);
+                        graphics.fill(new Ellipse2D.Double(center - diameter / 4, center - diameter / 4,
+                                diameter / 2, diameter / 2));
+                    }
+                } finally {
+                    graphics.dispose();
+                }
+                sprites[color][selected] = sprite;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Az objektum előre kirajzolt képe.
+     * @param color az objektum színkódja.
+     * @param selected ki van-e jelölve az objektum.
+     * @return a kép, vagy null ha a színkódhoz nincs kép.
+     */
+    public BufferedImage get(int color, boolean selected) {
+        if (color < 0 || color >= COLORS) {
+            return null;
+        }
+        return sprites[color][selected ? 1 : 0];
+    }
+
+    /**
+     * A képek oldalhossza pixelben. A kép közepe esik az objektum középpontjára.
+     * @return a képek oldalhossza.
+     */
+    public int getSpriteSize() {
+        return spriteSize;
+    }
+}
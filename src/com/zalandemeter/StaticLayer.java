@@ -0,0 +1,189 @@
+package com.zalandemeter;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * A vászon állandó rétegét (háttér, ívek, kijelöletlen objektumok) tároló kép, és a kirajzolás állapota,
+ * amihez a kép készült. Amíg az objektumok, az ívek, a nagyítás és a méretek nem változnak, a képet
+ * újrarajzolás nélkül lehet a vászonra másolni. Ha csak az eltolás változott, a kép tartalma eltolható,
+ * és csak az újonnan láthatóvá vált sávokat kell kirajzolni.
+ * @author zalandemeter
+ */
+public class StaticLayer {
+
+    /**
+     * A réteg képe, eszköz pixelekben. Értéke null, amíg nem volt kirajzolás.
+     */
+    private BufferedImage image;
+
+    /**
+     * Igaz, ha a kép tartalma megfelel az eltárolt állapotnak.
+     */
+    private boolean valid;
+
+    /**
+     * A vászon nagyítása a kirajzoláskor.
+     */
+    private double scale;
+
+    /**
+     * Az eszköz léptéke (pl. HiDPI kijelzőn) a kirajzoláskor.
+     */
+    private double deviceScale;
+
+    /**
+     * A vászon X irányú eltolása a kirajzoláskor.
+     */
+    private double translateX;
+
+    /**
+     * A vászon Y irányú eltolása a kirajzoláskor.
+     */
+    private double translateY;
+
+    /**
+     * Az objektumok kirajzolási mérete a kirajzoláskor.
+     */
+    private int objectSize;
+
+    /**
+     * Az objektumok kirajzolási távolsága a kirajzoláskor.
+     */
+    private int objectDistance;
+
+    /**
+     * A tároló változásszámlálója a kirajzoláskor.
+     */
+    private int version;
+
+    /**
+     * A kirajzolt kék ív útvonala.
+     */
+    private Shape blueCurve;
+
+    /**
+     * A kirajzolt sárga ív útvonala.
+     */
+    private Shape yellowCurve;
+
+    /**
+     * Igaz, ha a réteg az objektumok helyett a sűrűségüket ábrázolja.
+     */
+    private boolean density;
+
+    /**
+     * A sűrűségi összesítő változásszámlálója a kirajzoláskor, ha a réteg a sűrűséget ábrázolja.
+     */
+    private int densityVersion;
+
+    /**
+     * A rétegen látható objektumok száma.
+     */
+    private int drawn;
+
+    /**
+     * Biztosítja, hogy a kép a megadott méretű legyen. Méretváltozáskor új képet foglal, és érvényteleníti a tartalmat.
+     * @param width a kép szélessége eszköz pixelekben.
+     * @param height a kép magassága eszköz pixelekben.
+     * @param configuration a vászon grafikus konfigurációja, vagy null.
+     * @return a réteg képe.
+     */
+    public BufferedImage prepare(int width, int height, GraphicsConfiguration configuration) {
+        if (image == null || image.getWidth() != width || image.getHeight() != height) {
+            image = configuration != null
+                    ? configuration.createCompatibleImage(width, height)
+                    : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            valid = false;
+        }
+        return image;
+    }
+
+    /**
+     * Érvényteleníti a kép tartalmát, a következő kirajzolás teljesen újrarajzolja.
+     */
+    public void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * Megadja, hogy a kép az eltolástól eltekintve a megadott állapotnak megfelelő-e.
+     * @param scale a vászon nagyítása.
+     * @param deviceScale az eszköz léptéke.
+     * @param version a tároló változásszámlálója.
+     * @param blueCurve a kék ív útvonala.
+     * @param yellowCurve a sárga ív útvonala.
+     * @param density igaz, ha a réteg a sűrűséget ábrázolja.
+     * @param densityVersion a sűrűségi összesítő változásszámlálója, ha a réteg a sűrűséget ábrázolja.
+     * @return igaz, ha csak az eltolás változhatott.
+     */
+    public boolean matches(double scale, double deviceScale, int version, Shape blueCurve, Shape yellowCurve,
+                           boolean density, int densityVersion) {
+        return valid && this.scale == scale && this.deviceScale == deviceScale && this.version == version
+                && this.blueCurve == blueCurve && this.yellowCurve == yellowCurve
+                && this.density == density && this.densityVersion == densityVersion
+                && objectSize == Item.getObjectSize() && objectDistance == Item.getObjectDistance();
+    }
+
+    /**
+     * Eltárolja az állapotot, amihez a kép tartalma készült.
+     * @param scale a vászon nagyítása.
+     * @param deviceScale az eszköz léptéke.
+     * @param translateX a vászon X irányú eltolása.
+     * @param translateY a vászon Y irányú eltolása.
+     * @param version a tároló változásszámlálója.
+     * @param blueCurve a kék ív útvonala.
+     * @param yellowCurve a sárga ív útvonala.
+     * @param density igaz, ha a réteg a sűrűséget ábrázolja.
+     * @param densityVersion a sűrűségi összesítő változásszámlálója, ha a réteg a sűrűséget ábrázolja.
+     * @param drawn a rétegen látható objektumok száma.
+     */
+    public void store(double scale, double deviceScale, double translateX, double translateY, int version,
+                      Shape blueCurve, Shape yellowCurve, boolean density, int densityVersion, int drawn) {
+        this.scale = scale;
+        this.deviceScale = deviceScale;
+        this.translateX = translateX;
+        this.translateY = translateY;
+        this.version = version;
+        this.blueCurve = blueCurve;
+        this.yellowCurve = yellowCurve;
+        objectSize = Item.getObjectSize();
+        objectDistance = Item.getObjectDistance();
+        this.density = density;
+        this.densityVersion = densityVersion;
+        this.drawn = drawn;
+        valid = true;
+    }
+
+    /**
+     * Megadja, hogy a réteg az objektumok helyett a sűrűségüket ábrázolja-e.
+     * @return igaz, ha a réteg a sűrűséget ábrázolja.
+     */
+    public boolean isDensity() {
+        return density;
+    }
+
+    /**
+     * A rétegen látható objektumok száma. Sűrűségi ábrázolás esetén a kijelölt objektumokat is tartalmazza.
+     * @return az objektumok száma.
+     */
+    public int getDrawn() {
+        return drawn;
+    }
+
+    /**
+     * A vászon X irányú eltolása a kirajzoláskor.
+     * @return az eltolás értéke.
+     */
+    public double getTranslateX() {
+        return translateX;
+    }
+
+    /**
+     * A vászon Y irányú eltolása a kirajzoláskor.
+     * @return az eltolás értéke.
+     */
+    public double getTranslateY() {
+        return translateY;
+    }
+}
@@ -0,0 +1,615 @@
+package com.zalandemeter;
+
+import java.util.Arrays;
+
+/**
+ * Az objektumok sorbarendezését (zárt körút) közelítő, a genetikus algoritmusnál gyorsabb eljárás.
+ * Először legközelebbi szomszéd módszerrel felépít egy körutat, majd 2-opt és Or-opt lépésekkel javítja.
+ * A lépések csak a pontok {@link #DEFAULT_CANDIDATES} legközelebbi szomszédját vizsgálják (jelöltlisták),
+ * és csak azoknál a pontoknál keresnek javítást, amelyek környezete megváltozott (don't-look bitek),
+ * így a futási idő közel lineáris. Távolságmátrixot nem épít, a távolságokat a koordinátákból számolja.
+ * A bóják által kijelölt pályaszélek közel síkbeli láncok, ezekre az eredmény a legjobb körúthoz nagyon közeli.
+ * @author zalandemeter
+ */
+public class TourOptimizer {
+
+    /**
+     * A jelöltlisták alapértelmezett hossza: ennyi legközelebbi szomszédot vizsgál pontonként.
+     */
+    public static final int DEFAULT_CANDIDATES = 8;
+
+    /**
+     * Az Or-opt lépésben áthelyezett szakaszok maximális hossza.
+     */
+    private static final int MAX_SEGMENT = 3;
+
+    /**
+     * A lépések által megfordított szakasz maximális hossza. A körút tömbben van, így egy lépés ideje a megfordított
+     * szakasz hosszával arányos; nagy körutakon a ritka, nagyon hosszú fordításokat nem hajtja végre.
+     */
+    private static final int MAX_REVERSE = 50_000;
+
+    /**
+     * A javításnak legalább ekkorának kell lennie, a kerekítési hibák miatti végtelen ciklus elkerülésére.
+     */
+    private static final double EPS = 1e-10;
+
+    /**
+     * A pontok X koordinátái.
+     */
+    private final double[] x;
+
+    /**
+     * A pontok Y koordinátái.
+     */
+    private final double[] y;
+
+    /**
+     * A pontok száma.
+     */
+    private final int n;
+
+    /**
+     * A pontok jelöltlistái, pontonként a legközelebbi szomszédok távolság szerint növekvő sorrendben.
+     */
+    private final int[][] candidates;
+
+    /**
+     * A körút: a pontok indexei bejárási sorrendben.
+     */
+    private int[] tour;
+
+    /**
+     * A pontok helye a körútban.
+     */
+    private int[] pos;
+
+    /**
+     * A vizsgálandó pontok sora, körkörös tömbben.
+     */
+    private int[] queue;
+
+    /**
+     * A sor első elemének helye.
+     */
+    private int head;
+
+    /**
+     * A sorban lévő elemek száma.
+     */
+    private int queued;
+
+    /**
+     * Igaz, ha a pont a sorban van. A sorban nem lévő pontok don't-look bitje be van kapcsolva.
+     */
+    private boolean[] inQueue;
+
+    /**
+     * A pontokra épített k-d fa, a jelöltlisták és a legközelebbi szomszéd keresésére.
+     */
+    private final KdTree tree;
+
+    /**
+     * Az osztály konstruktora, felépíti a jelöltlistákat az alapértelmezett hosszal.
+     * @param x a pontok X koordinátái.
+     * @param y a pontok Y koordinátái.
+     */
+    public TourOptimizer(double[] x, double[] y) {
+        this(x, y, DEFAULT_CANDIDATES);
+    }
+
+    /**
+     * Az osztály konstruktora, felépíti a jelöltlistákat.
+     * @param x a pontok X koordinátái.
+     * @param y a pontok Y koordinátái.
+     * @param k a jelöltlisták hossza.
+     */
+    public TourOptimizer(double[] x, double[] y, int k) {
+        this.x = x;
+        this.y = y;
+        n = x.length;
+        tree = new KdTree();
+        candidates = new int[n][];
+        int size = Math.max(0, Math.min(k, n - 1));
+        for (int i = 0; i < n; i++) {
+            candidates[i] = tree.nearest(i, size, false);
+        }
+    }
+
+    /**
+     * Kiszámolja a körutat.
+     * @return a pontok indexei bejárási sorrendben, a 0 indexű ponttal kezdve.
+     */
+    public int[] solve() {
+        if (n <= 3) {
+            int[] identity = new int[n];
+            for (int i = 0; i < n; i++) {
+                identity[i] = i;
+            }
+            return identity;
+        }
+        nearestNeighbour();
+        localSearch();
+        int[] result = new int[n];
+        int start = pos[0];
+        for (int i = 0; i < n; i++) {
+            result[i] = tour[(start + i) % n];
+        }
+        return result;
+    }
+
+    /**
+     * A körút hossza.
+     * @param order a pontok indexei bejárási sorrendben.
+     * @return a zárt körút hossza.
+     */
+    public double length(int[] order) {
+        double length = 0;
+        for (int i = 0; i < order.length; i++) {
+            length += dist(order[i], order[(i + 1) % order.length]);
+        }
+        return length;
+    }
+
+    /**
+     * Két pont távolsága.
+     */
+    private double dist(int a, int b) {
+        double dx = x[a] - x[b];
+        double dy = y[a] - y[b];
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Felépíti a kezdeti körutat: a 0 indexű pontból indulva mindig a legközelebbi még nem bejárt pontra lép.
+     * Ha a jelöltlistában van még be nem járt pont, az első ilyen a legközelebbi, egyébként a k-d fában keres.
+     */
+    private void nearestNeighbour() {
+        tour = new int[n];
+        pos = new int[n];
+        boolean[] visited = new boolean[n];
+        int current = 0;
+        for (int i = 0; i < n; i++) {
+            tour[i] = current;
+            pos[current] = i;
+            visited[current] = true;
+            tree.remove(current);
+            if (i == n - 1) {
+                break;
+            }
+            int next = -1;
+            for (int c : candidates[current]) {
+                if (!visited[c]) {
+                    next = c;
+                    break;
+                }
+            }
+            if (next < 0) {
+                next = tree.nearest(current, 1, true)[0];
+            }
+            current = next;
+        }
+    }
+
+    /**
+     * Javítja a körutat, amíg van javító 2-opt vagy Or-opt lépés a sorban lévő pontok környezetében.
+     */
+    private void localSearch() {
+        queue = new int[n];
+        inQueue = new boolean[n];
+        head = 0;
+        queued = 0;
+        for (int i = 0; i < n; i++) {
+            push(tour[i]);
+        }
+        while (queued > 0) {
+            int a = queue[head];
+            head = (head + 1) % n;
+            queued--;
+            inQueue[a] = false;
+            if (improveTwoOpt(a) || improveOrOpt(a)) {
+                push(a);
+            }
+        }
+    }
+
+    /**
+     * A pontot a sor végére teszi, ha még nincs benne, vagyis törli a don't-look bitjét.
+     */
+    private void push(int a) {
+        if (!inQueue[a]) {
+            inQueue[a] = true;
+            queue[(head + queued) % n] = a;
+            queued++;
+        }
+    }
+
+    /**
+     * A pont utáni pont a körútban.
+     */
+    private int succ(int a) {
+        int p = pos[a] + 1;
+        return tour[p == n ? 0 : p];
+    }
+
+    /**
+     * A pont előtti pont a körútban.
+     */
+    private int pred(int a) {
+        int p = pos[a] - 1;
+        return tour[p < 0 ? n - 1 : p];
+    }
+
+    /**
+     * 2-opt lépéssel javít az a pontnál: az a pont egyik élét és egy jelöltjének azonos irányú élét kicseréli.
+     * @return igaz, ha talált javító lépést.
+     */
+    private boolean improveTwoOpt(int a) {
+        for (int dir = 0; dir < 2; dir++) {
+            int b = dir == 0 ? succ(a) : pred(a);
+            double ab = dist(a, b);
+            for (int c : candidates[a]) {
+                double ac = dist(a, c);
+                if (ac >= ab) {
+                    break;
+                }
+                int d = dir == 0 ? succ(c) : pred(c);
+                if (c == b || d == a || span(a, c) > MAX_REVERSE) {
+                    continue;
+                }
+                if (ac + dist(b, d) - ab - dist(c, d) < -EPS) {
+                    exchange(a, b, c, d);
+                    push(b);
+                    push(c);
+                    push(d);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Or-opt lépéssel javít az a pontnál: az a ponttal kezdődő vagy végződő legfeljebb {@link #MAX_SEGMENT}
+     * hosszú szakaszt áthelyezi a végpontjai valamelyik jelöltjének egyik éle közé, szükség esetén megfordítva.
+     * @return igaz, ha talált javító lépést.
+     */
+    private boolean improveOrOpt(int a) {
+        for (int length = 1; length <= MAX_SEGMENT && length + 4 <= n; length++) {
+            for (int end = 0; end < 2; end++) {
+                int s1 = a;
+                for (int k = 0; k < length - 1 && end == 1; k++) {
+                    s1 = pred(s1);
+                }
+                int s2 = s1;
+                for (int k = 0; k < length - 1; k++) {
+                    s2 = succ(s2);
+                }
+                int p = pred(s1);
+                int next = succ(s2);
+                double gain = dist(p, s1) + dist(s2, next) - dist(p, next);
+                if (gain <= EPS) {
+                    continue;
+                }
+                for (int side = 0; side < 2; side++) {
+                    int e = side == 0 ? s1 : s2;
+                    for (int c : candidates[e]) {
+                        if (dist(e, c) >= gain) {
+                            break;
+                        }
+                        if (inSegment(c, s1, length) || span(s1, c) > MAX_REVERSE) {
+                            continue;
+                        }
+                        for (int t = 0; t < 2; t++) {
+                            int u = t == 0 ? c : pred(c);
+                            int v = t == 0 ? succ(c) : c;
+                            if (u == p || v == p || u == next || v == next) {
+                                continue;
+                            }
+                            double uv = dist(u, v);
+                            double forward = dist(u, s1) + dist(s2, v) - uv;
+                            double reversed = dist(u, s2) + dist(s1, v) - uv;
+                            if (Math.min(forward, reversed) < gain - EPS) {
+                                /*
+                                 * Az áthelyezés három élcsere: az első kettő után a szakasz megfordítva kerül
+                                 * az u és v közé, a harmadik visszafordítja.
+                                 */
+                                exchange(p, s1, u, v);
+                                exchange(p, u, next, s2);
+                                if (forward < reversed) {
+                                    exchange(u, s2, s1, v);
+                                }
+                                push(p);
+                                push(next);
+                                push(s1);
+                                push(s2);
+                                push(u);
+                                push(v);
+                                return true;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Két pont távolsága a körútban, a rövidebb irányban mérve.
+     */
+    private int span(int a, int b) {
+        int d = Math.abs(pos[a] - pos[b]);
+        return Math.min(d, n - d);
+    }
+
+    /**
+     * Megadja, hogy a pont az s1-gyel kezdődő, adott hosszú szakaszban van-e.
+     */
+    private boolean inSegment(int c, int s1, int length) {
+        int s = s1;
+        for (int k = 0; k < length; k++) {
+            if (s == c) {
+                return true;
+            }
+            s = succ(s);
+        }
+        return false;
+    }
+
+    /**
+     * Kicseréli az {a, b} és {c, d} éleket az {a, c} és {b, d} élekre. Az a és b, valamint a c és d pontok
+     * a körútban szomszédosak, és a két él azonos irányú: vagy b követi a-t és d követi c-t, vagy fordítva.
+     */
+    private void exchange(int a, int b, int c, int d) {
+        if (succ(a) == b) {
+            reverse(b, c);
+        } else {
+            reverse(a, d);
+        }
+    }
+
+    /**
+     * Megfordítja a körút from ponttól előre haladva a to pontig tartó szakaszát.
+     * Ha a szakasz a körút felénél hosszabb, a kiegészítő szakaszt fordítja meg, ami ugyanazt a körutat adja.
+     */
+    private void reverse(int from, int to) {
+        int i = pos[from];
+        int j = pos[to];
+        int length = (j - i + n) % n + 1;
+        if (2 * length > n) {
+            int k = (j + 1) % n;
+            j = (i - 1 + n) % n;
+            i = k;
+            length = n - length;
+        }
+        for (int k = 0; k < length / 2; k++) {
+            int a = tour[i];
+            int b = tour[j];
+            tour[i] = b;
+            pos[b] = i;
+            tour[j] = a;
+            pos[a] = j;
+            i = i + 1 == n ? 0 : i + 1;
+            j = j == 0 ? n - 1 : j - 1;
+        }
+    }
+
+    /**
+     * A pontokra épített k-d fa. A fa implicit: a pontok tömbjében minden részfa egy folytonos tartomány,
+     * aminek középső eleme a csúcs, a tőle balra lévők a bal, a jobbra lévők a jobb részfa. A csúcsok a tartomány
+     * nagyobb kiterjedésű tengelye mentén vágnak, így a pályaszélek mentén sűrűsödő pontokra is kiegyensúlyozott.
+     * A pontok törölhetők, a keresés a törölt pontokat tartalmazó részfákat kihagyja.
+     */
+    private final class KdTree {
+        /**
+         * A pontok a fa sorrendjében.
+         */
+        private final int[] items;
+
+        /**
+         * A csúcsok vágási tengelye: igaz, ha X szerint vág.
+         */
+        private final boolean[] splitX;
+
+        /**
+         * A csúcsok részfájában lévő, még nem törölt pontok száma.
+         */
+        private final int[] alive;
+
+        /**
+         * A pontok helye az items tömbben.
+         */
+        private final int[] slot;
+
+        /**
+         * Igaz, ha a pontot törölték.
+         */
+        private final boolean[] removed;
+
+        /**
+         * A keresés által talált pontok, távolság szerint növekvő sorrendben.
+         */
+        private int[] best;
+
+        /**
+         * A talált pontok távolságának négyzete.
+         */
+        private double[] bestDist;
+
+        /**
+         * A talált pontok száma.
+         */
+        private int found;
+
+        /**
+         * A fa konstruktora.
+         */
+        KdTree() {
+            items = new int[n];
+            for (int i = 0; i < n; i++) {
+                items[i] = i;
+            }
+            splitX = new boolean[n];
+            alive = new int[n];
+            slot = new int[n];
+            removed = new boolean[n];
+            build(0, n);
+            for (int s = 0; s < n; s++) {
+                slot[items[s]] = s;
+            }
+        }
+
+        /**
+         * Felépíti a tartomány részfáját: a nagyobb kiterjedésű tengely szerinti mediánt a tartomány közepére teszi.
+         */
+        private void build(int lo, int hi) {
+            while (hi - lo > 1) {
+                double minX = Double.POSITIVE_INFINITY;
+                double minY = Double.POSITIVE_INFINITY;
+                double maxX = Double.NEGATIVE_INFINITY;
+                double maxY = Double.NEGATIVE_INFINITY;
+                for (int s = lo; s < hi; s++) {
+                    int i = items[s];
+                    minX = Math.min(minX, x[i]);
+                    maxX = Math.max(maxX, x[i]);
+                    minY = Math.min(minY, y[i]);
+                    maxY = Math.max(maxY, y[i]);
+                }
+                int mid = (lo + hi) >>> 1;
+                boolean byX = maxX - minX >= maxY - minY;
+                select(lo, hi - 1, mid, byX ? x : y);
+                splitX[mid] = byX;
+                alive[mid] = hi - lo;
+                build(lo, mid);
+                lo = mid + 1;
+            }
+            if (hi - lo == 1) {
+                alive[lo] = 1;
+            }
+        }
+
+        /**
+         * Átrendezi a tartományt úgy, hogy a k helyen a koordináta szerinti k-adik pont álljon,
+         * előtte a nem nagyobb, utána a nem kisebb koordinátájúak.
+         */
+        private void select(int lo, int hi, int k, double[] coord) {
+            while (lo < hi) {
+                double pivot = coord[items[(lo + hi) >>> 1]];
+                int i = lo;
+                int j = hi;
+                while (i <= j) {
+                    while (coord[items[i]] < pivot) {
+                        i++;
+                    }
+                    while (coord[items[j]] > pivot) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        int t = items[i];
+                        items[i] = items[j];
+                        items[j] = t;
+                        i++;
+                        j--;
+                    }
+                }
+                if (k <= j) {
+                    hi = j;
+                } else if (k >= i) {
+                    lo = i;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Törli a pontot a fából: a gyökértől a pontig csökkenti a részfák élő pontjainak számát.
+         * @param i a törlendő pont.
+         */
+        void remove(int i) {
+            removed[i] = true;
+            int target = slot[i];
+            int lo = 0;
+            int hi = n;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                alive[mid]--;
+                if (target == mid) {
+                    return;
+                } else if (target < mid) {
+                    hi = mid;
+                } else {
+                    lo = mid + 1;
+                }
+            }
+        }
+
+        /**
+         * A ponthoz legközelebbi k pont, távolság szerint növekvő sorrendben.
+         * @param i a pont indexe, önmagát nem adja vissza.
+         * @param k a keresett pontok száma.
+         * @param aliveOnly igaz, ha csak a nem törölt pontok között keres; egyébként minden pont között.
+         * @return a legközelebbi pontok indexei.
+         */
+        int[] nearest(int i, int k, boolean aliveOnly) {
+            best = new int[k];
+            bestDist = new double[k];
+            found = 0;
+            if (k > 0) {
+                search(0, n, i, k, aliveOnly);
+            }
+            return found == k ? best : Arrays.copyOf(best, found);
+        }
+
+        /**
+         * Keresés a tartomány részfájában: előbb a pont felőli oldalon, a másik oldalon csak akkor,
+         * ha a vágás közelebb van a k-adik talált pontnál.
+         */
+        private void search(int lo, int hi, int i, int k, boolean aliveOnly) {
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (aliveOnly && alive[mid] == 0) {
+                    return;
+                }
+                int j = items[mid];
+                if (j != i && !(aliveOnly && removed[j])) {
+                    double dx = x[i] - x[j];
+                    double dy = y[i] - y[j];
+                    offer(j, dx * dx + dy * dy, k);
+                }
+                double delta = splitX[mid] ? x[i] - x[j] : y[i] - y[j];
+                boolean left = delta < 0;
+                if (left) {
+                    search(lo, mid, i, k, aliveOnly);
+                } else {
+                    search(mid + 1, hi, i, k, aliveOnly);
+                }
+                if (found == k && delta * delta >= bestDist[k - 1]) {
+                    return;
+                }
+                if (left) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+        }
+
+        /**
+         * Beszúrja a pontot a talált pontok közé, ha közelebb van a k-adiknál.
+         */
+        private void offer(int j, double d, int k) {
+            if (found < k || d < bestDist[found - 1]) {
+                int p = found < k ? found++ : found - 1;
+                while (p > 0 && bestDist[p - 1] > d) {
+                    best[p] = best[p - 1];
+                    bestDist[p] = bestDist[p - 1];
+                    p--;
+                }
+                best[p] = j;
+                bestDist[p] = d;
+            }
+        }
+    }
+}
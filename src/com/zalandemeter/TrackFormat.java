@@ -0,0 +1,303 @@
+package com.zalandemeter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Bináris, oszlopos pályaformátum (.trk) írását és olvasását megvalósító osztály.
+ * A fájl egy 48 bájtos fejlécből és azt követő tömbökből áll, minden érték little-endian bájtsorrendű:
+ * <pre>
+ * 0  int     mágikus szám ("CTRK")
+ * 4  int     verzió
+ * 8  int     objektumok száma (n)
+ * 12 int     fenntartva
+ * 16 double  minX, minY, maxX, maxY (befoglaló téglalap)
+ * 48 long[n] X koordináták 1e-8 egységekben
+ *    long[n] Y koordináták 1e-8 egységekben
+ *    byte[n] színkódok
+ * </pre>
+ * A tömbök nagy blokkokban, tömeges olvasással tölthetők be, így a betöltési idő a fájlmérettel arányos.
+ * Az olvasás nem képezi le a fájlt memóriába, mert egy élő leképezés Windowson megakadályozná a fájl
+ * felülírását vagy törlését, amíg a puffert a szemétgyűjtő fel nem szabadítja.
+ * @author zalandemeter
+ */
+public class TrackFormat {
+
+    /**
+     * A formátum kiterjesztése.
+     */
+    public static final String EXTENSION = "trk";
+
+    /**
+     * A fájl elején álló mágikus szám, "CTRK" little-endian sorrendben.
+     */
+    private static final int MAGIC = 0x4B525443;
+
+    /**
+     * A formátum aktuális verziója.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * A fejléc mérete bájtokban.
+     */
+    private static final int HEADER_SIZE = 48;
+
+    /**
+     * Írásnál és olvasásnál használt puffer mérete bájtokban.
+     */
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Egy .trk fájlból beolvasott, vagy abba írandó pálya oszlopai.
+     */
+    public static class Track {
+        /**
+         * X koordináták 1e-8 egységekben.
+         */
+        private final long[] x;
+
+        /**
+         * Y koordináták 1e-8 egységekben.
+         */
+        private final long[] y;
+
+        /**
+         * Színkódok.
+         */
+        private final byte[] color;
+
+        /**
+         * A befoglaló téglalap: minX, minY, maxX, maxY.
+         */
+        private final double[] bounds;
+
+        /**
+         * Az osztály konstruktora. A befoglaló téglalapot a koordinátákból számolja.
+         * @param x X koordináták 1e-8 egységekben.
+         * @param y Y koordináták 1e-8 egységekben.
+         * @param color színkódok.
+         */
+        public Track(long[] x, long[] y, byte[] color) {
+            this(x, y, color, computeBounds(x, y));
+        }
+
+        /**
+         * Az osztály konstruktora.
+         * @param x X koordináták 1e-8 egységekben.
+         * @param y Y koordináták 1e-8 egységekben.
+         * @param color színkódok.
+         * @param bounds a befoglaló téglalap.
+         */
+        private Track(long[] x, long[] y, byte[] color, double[] bounds) {
+            this.x = x;
+            this.y = y;
+            this.color = color;
+            this.bounds = bounds;
+        }
+
+        /**
+         * A tárolt sorokat sorrendben átadja a paraméterül kapott példánynak.
+         * @param handler a sorokat fogadó példány.
+         */
+        public void replay(CSVParser.RowHandler handler) {
+            for (int i = 0; i < x.length; i++) {
+                handler.row(x[i], y[i], color[i]);
+            }
+        }
+
+        /**
+         * Az objektumok számához tartozó getter.
+         * @return a pályán lévő objektumok száma.
+         */
+        public int size() {
+            return x.length;
+        }
+
+        /**
+         * X koordinátákhoz tartozó getter.
+         * @return X koordináták 1e-8 egységekben.
+         */
+        public long[] getX() {
+            return x;
+        }
+
+        /**
+         * Y koordinátákhoz tartozó getter.
+         * @return Y koordináták 1e-8 egységekben.
+         */
+        public long[] getY() {
+            return y;
+        }
+
+        /**
+         * Színkódokhoz tartozó getter.
+         * @return a színkódok.
+         */
+        public byte[] getColor() {
+            return color;
+        }
+
+        /**
+         * A befoglaló téglalaphoz tartozó getter.
+         * @return minX, minY, maxX, maxY sorrendben.
+         */
+        public double[] getBounds() {
+            return bounds;
+        }
+
+        /**
+         * Kiszámolja a koordináták befoglaló téglalapját.
+         * @return minX, minY, maxX, maxY sorrendben, üres pálya esetén csupa 0.
+         */
+        private static double[] computeBounds(long[] x, long[] y) {
+            if (x.length == 0) {
+                return new double[4];
+            }
+            long minX = Long.MAX_VALUE, minY = Long.MAX_VALUE, maxX = Long.MIN_VALUE, maxY = Long.MIN_VALUE;
+            for (int i = 0; i < x.length; i++) {
+                minX = Math.min(minX, x[i]);
+                maxX = Math.max(maxX, x[i]);
+                minY = Math.min(minY, y[i]);
+                maxY = Math.max(maxY, y[i]);
+            }
+            return new double[]{CSVParser.toDouble(minX), CSVParser.toDouble(minY),
+                    CSVParser.toDouble(maxX), CSVParser.toDouble(maxY)};
+        }
+    }
+
+    /**
+     * Beolvas egy .trk fájlt. A tömböket pozícionált olvasással, egy újrahasznosított pufferen keresztül tölti be.
+     * @param filename a beolvasandó fájl neve.
+     * @return a beolvasott pálya.
+     * @throws IOException olvasási hiba, vagy hibás fájl esetén.
+     */
+    public static Track read(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException(filename + ": truncated track header");
+                }
+            }
+            header.flip();
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException(filename + ": not a track file");
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException(filename + ": unsupported track version " + header.getInt(4));
+            }
+            int count = header.getInt(8);
+            long expected = HEADER_SIZE + count * 17L;
+            if (count < 0 || channel.size() != expected) {
+                throw new IOException(filename + ": track size mismatch, expected " + expected + " bytes");
+            }
+            double[] bounds = {header.getDouble(16), header.getDouble(24), header.getDouble(32), header.getDouble(40)};
+
+            long[] x = new long[count];
+            long[] y = new long[count];
+            byte[] color = new byte[count];
+            if (count > 0) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                long offset = HEADER_SIZE;
+                readLongs(channel, buffer, offset, x);
+                offset += count * 8L;
+                readLongs(channel, buffer, offset, y);
+                offset += count * 8L;
+                for (int i = 0; i < count; ) {
+                    int n = Math.min(buffer.capacity(), count - i);
+                    fill(channel, buffer, offset + i, n);
+                    buffer.get(color, i, n);
+                    i += n;
+                }
+            }
+            return new Track(x, y, color, bounds);
+        }
+    }
+
+    /**
+     * Egy long tömböt olvas be a fájl adott pozíciójától a pufferen keresztül.
+     */
+    private static void readLongs(FileChannel channel, ByteBuffer buffer, long offset, long[] values) throws IOException {
+        for (int i = 0; i < values.length; ) {
+            int n = Math.min(buffer.capacity() / 8, values.length - i);
+            fill(channel, buffer, offset + i * 8L, n * 8);
+            buffer.asLongBuffer().get(values, i, n);
+            i += n;
+        }
+    }
+
+    /**
+     * A puffert a fájl adott pozíciójától kezdődő length bájttal tölti fel, és olvasásra állítja.
+     */
+    private static void fill(FileChannel channel, ByteBuffer buffer, long position, int length) throws IOException {
+        buffer.clear().limit(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of track file");
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Kiír egy pályát .trk formátumban. A meglévő fájl tartalmát felülírja.
+     * @param filename a menteni kívánt fájl neve.
+     * @param track a kiírandó pálya.
+     * @throws IOException írási hiba esetén.
+     */
+    public static void write(String filename, Track track) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            double[] bounds = track.getBounds();
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(track.size()).putInt(0);
+            for (double b: bounds) {
+                buffer.putDouble(b);
+            }
+            writeLongs(channel, buffer, track.getX());
+            writeLongs(channel, buffer, track.getY());
+            byte[] color = track.getColor();
+            for (int i = 0; i < color.length; ) {
+                int n = Math.min(buffer.remaining(), color.length - i);
+                buffer.put(color, i, n);
+                i += n;
+                if (!buffer.hasRemaining()) {
+                    drain(channel, buffer);
+                }
+            }
+            drain(channel, buffer);
+        }
+    }
+
+    /**
+     * Egy long tömböt ír ki a pufferen keresztül.
+     */
+    private static void writeLongs(FileChannel channel, ByteBuffer buffer, long[] values) throws IOException {
+        for (int i = 0; i < values.length; ) {
+            int n = Math.min(buffer.remaining() / 8, values.length - i);
+            if (n == 0) {
+                drain(channel, buffer);
+                continue;
+            }
+            buffer.asLongBuffer().put(values, i, n);
+            buffer.position(buffer.position() + n * 8);
+            i += n;
+        }
+    }
+
+    /**
+     * Kiírja a puffer tartalmát és kiüríti a puffert.
+     */
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
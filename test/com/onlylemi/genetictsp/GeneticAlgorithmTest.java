@@ -0,0 +1,106 @@
+package com.onlylemi.genetictsp;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A genetikus algoritmust tesztelő osztály.
+ * @author zalandemeter
+ */
+public class GeneticAlgorithmTest {
+
+    /**
+     * Véletlenszerű pontok távolságmátrixa.
+     */
+    private static float[][] randomDist(int n, long seed) {
+        Random random = new Random(seed);
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = random.nextDouble() * 100;
+            y[i] = random.nextDouble() * 100;
+        }
+        return GeneticAlgorithm.getDist(x, y);
+    }
+
+    /**
+     * Lefuttatja az algoritmust a megadott kezdőértékkel.
+     */
+    private static int[] solve(float[][] dist, long seed) {
+        GeneticAlgorithm ga = new GeneticAlgorithm(seed);
+        ga.setMaxGeneration(200);
+        ga.setAutoNextGeneration(true);
+        return ga.tsp(dist);
+    }
+
+    /**
+     * A párhuzamosan futó példányok függetlenségét tesztelő metódus: azonos kezdőértékkel
+     * párhuzamosan futtatva ugyanazt a sorrendet adják, mint egymás után futtatva.
+     */
+    @Test
+    public void independentInstances() {
+        float[][] first = randomDist(60, 1);
+        float[][] second = randomDist(80, 2);
+        int[] expectedFirst = solve(first, 5);
+        int[] expectedSecond = solve(second, 6);
+
+        CompletableFuture<int[]> other = CompletableFuture.supplyAsync(() -> solve(second, 6));
+        int[] actualFirst = solve(first, 5);
+        Assert.assertArrayEquals(expectedFirst, actualFirst);
+        Assert.assertArrayEquals(expectedSecond, other.join());
+        Assert.assertEquals(60, actualFirst.length);
+        Assert.assertEquals(0, actualFirst[0]);
+    }
+
+    /**
+     * A párhuzamos kiértékelést tesztelő metódus: adott kezdőértékkel a párhuzamosságtól függetlenül
+     * ugyanazt a sorrendet és úthosszt adja.
+     */
+    @Test
+    public void parallelIsDeterministic() {
+        float[][] dist = randomDist(120, 3);
+        GeneticAlgorithm sequential = new GeneticAlgorithm(9);
+        sequential.setMaxGeneration(200);
+        sequential.setAutoNextGeneration(true);
+        int[] expected = sequential.tsp(dist);
+
+        try (GeneticAlgorithm parallel = new GeneticAlgorithm(9)) {
+            parallel.setParallelism(4);
+            parallel.setMaxGeneration(200);
+            parallel.setAutoNextGeneration(true);
+            Assert.assertArrayEquals(expected, parallel.tsp(dist));
+            Assert.assertEquals(sequential.getBestDist(), parallel.getBestDist(), 0);
+        }
+    }
+
+    /**
+     * A szigetmodellt tesztelő metódus: adott kezdőértékkel a párhuzamosságtól függetlenül ugyanazt a sorrendet adja,
+     * és a sorrend minden pontot pontosan egyszer tartalmaz.
+     */
+    @Test
+    public void islandsAreDeterministic() {
+        float[][] dist = randomDist(80, 4);
+        int[][] results = new int[2][];
+        for (int k = 0; k < 2; k++) {
+            try (GeneticAlgorithm ga = new GeneticAlgorithm(13)) {
+                ga.setIslands(3);
+                ga.setMigrationInterval(20);
+                ga.setMigrationSize(3);
+                ga.setParallelism(k == 0 ? 1 : 3);
+                ga.setMaxGeneration(150);
+                ga.setAutoNextGeneration(true);
+                results[k] = ga.tsp(dist);
+                Assert.assertEquals(150, ga.getCurrentGeneration());
+            }
+        }
+        Assert.assertArrayEquals(results[0], results[1]);
+        boolean[] seen = new boolean[80];
+        for (int city : results[0]) {
+            Assert.assertFalse(seen[city]);
+            seen[city] = true;
+        }
+    }
+}
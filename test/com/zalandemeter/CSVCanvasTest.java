@@ -0,0 +1,187 @@
+package com.zalandemeter;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * A vászon kirajzolását tesztelő osztály. A vásznat képre rajzolja, így megjelenítő nélkül is futtatható.
+ * @author zalandemeter
+ */
+public class CSVCanvasTest {
+
+    /**
+     * A tesztelt vászon.
+     */
+    private CSVCanvas canvas;
+
+    /**
+     * A kép, amire a vászon rajzol.
+     */
+    private BufferedImage image;
+
+    /**
+     * Minden teszt elején létrehozunk egy 400x300-as vásznat, egy látható és egy messzi objektummal.
+     */
+    @Before
+    public void setUp() {
+        canvas = new CSVCanvas();
+        canvas.setSize(400, 300);
+        canvas.setScale(1.0);
+        canvas.getObjects().add(2, 2, 1);
+        canvas.getObjects().add(500, 500, 2);
+        image = new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB);
+    }
+
+    /**
+     * Kirajzolja a vásznat a képre.
+     */
+    private void paint() {
+        Graphics2D graphics = image.createGraphics();
+        canvas.paintComponent(graphics);
+        graphics.dispose();
+    }
+
+    /**
+     * A látható területen kívüli objektumok kihagyását tesztelő metódus.
+     */
+    @Test
+    public void culling() {
+        paint();
+        Assert.assertEquals(1, canvas.getDrawnObjects());
+        Assert.assertEquals(Color.BLUE.getRGB(), image.getRGB(100, 100));
+
+        canvas.setTranslateX(-500 * Item.getObjectDistance() + 200);
+        canvas.setTranslateY(-500 * Item.getObjectDistance() + 150);
+        paint();
+        Assert.assertEquals(1, canvas.getDrawnObjects());
+        Assert.assertEquals(Color.YELLOW.getRGB(), image.getRGB(200, 150));
+    }
+
+    /**
+     * A látható terület szélén, részben látszó objektum kirajzolását tesztelő metódus.
+     */
+    @Test
+    public void partiallyVisible() {
+        canvas.getObjects().add(-0.2, 3, 4);
+        paint();
+        Assert.assertEquals(2, canvas.getDrawnObjects());
+        Assert.assertEquals(Item.ORANGE.getRGB(), image.getRGB(0, 150));
+    }
+
+    /**
+     * A kijelölés és az objektumméret változásának megjelenését tesztelő metódus.
+     */
+    @Test
+    public void spriteUpdates() {
+        canvas.getObjects().setSelected(0, true);
+        paint();
+        Assert.assertEquals(Item.SELECTED_COLOR.getRGB(), image.getRGB(100, 100));
+        Assert.assertEquals(Color.BLUE.getRGB(), image.getRGB(100, 109));
+
+        int objectSize = Item.getObjectSize();
+        try {
+            Item.setObjectSize(50);
+            paint();
+            Assert.assertEquals(Color.BLUE.getRGB(), image.getRGB(100, 120));
+        } finally {
+            Item.setObjectSize(objectSize);
+        }
+    }
+
+    /**
+     * Az eltolt réteggel és csak a láthatóvá vált sávok kirajzolásával kapott kép egyezését tesztelő metódus
+     * a teljesen újrarajzolt képpel.
+     */
+    @Test
+    public void panningReusesLayer() {
+        Random random = new Random(7);
+        for (int i = 0; i < 300; i++) {
+            canvas.getObjects().add(random.nextDouble() * 12 - 2, random.nextDouble() * 9 - 2, random.nextInt(5));
+        }
+        canvas.getObjects().setSelected(5, true);
+        paint();
+        canvas.setTranslateX(canvas.getTranslateX() + 37);
+        canvas.setTranslateY(canvas.getTranslateY() - 21);
+        paint();
+        int drawn = canvas.getDrawnObjects();
+
+        CSVCanvas reference = new CSVCanvas();
+        reference.setSize(400, 300);
+        reference.setScale(1.0);
+        reference.setTranslateX(37);
+        reference.setTranslateY(-21);
+        for (int i = 0; i < canvas.getObjects().size(); i++) {
+            reference.getObjects().addFixed(canvas.getObjects().getFixedX(i), canvas.getObjects().getFixedY(i),
+                    canvas.getObjects().getColor(i));
+        }
+        reference.getObjects().setSelected(5, true);
+        BufferedImage expected = new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = expected.createGraphics();
+        reference.paintComponent(graphics);
+        graphics.dispose();
+
+        Assert.assertEquals(reference.getDrawnObjects(), drawn);
+        for (int y = 0; y < 300; y++) {
+            for (int x = 0; x < 400; x++) {
+                Assert.assertEquals("pixel " + x + "," + y, expected.getRGB(x, y), image.getRGB(x, y));
+            }
+        }
+    }
+
+    /**
+     * A sűrűségi ábrázolásra váltást tesztelő metódus: sok látható objektum esetén a kirajzolt cellák
+     * az összes látható objektumot tartalmazzák, nagyítás után pedig újra az objektumok rajzolódnak ki.
+     */
+    @Test
+    public void densityAtLowZoom() {
+        canvas.getObjects().clear();
+        Random random = new Random(3);
+        for (int i = 0; i < 2000; i++) {
+            canvas.getObjects().add(random.nextDouble() * 4, random.nextDouble() * 4, 1);
+        }
+        paint();
+        Assert.assertEquals(2000, canvas.getDrawnObjects());
+        int rgb = image.getRGB(100, 100);
+        Assert.assertNotEquals(new Color(48, 48, 48).getRGB(), rgb);
+        Assert.assertEquals(new Color(rgb).getRed(), new Color(rgb).getGreen());
+        Assert.assertTrue(new Color(rgb).getBlue() > new Color(rgb).getRed());
+
+        canvas.setTranslateX(canvas.getTranslateX() - 13);
+        paint();
+        Assert.assertEquals(2000, canvas.getDrawnObjects());
+
+        canvas.setScale(20.0);
+        paint();
+        Assert.assertTrue(canvas.getDrawnObjects() > 0 && canvas.getDrawnObjects() < 100);
+    }
+
+    /**
+     * A tároló cseréjét és visszaállítását tesztelő metódus: a csere után az új tároló rajzolódik ki,
+     * a visszaállítás után az eredeti objektumok és ívek.
+     */
+    @Test
+    public void replaceAndRestore() {
+        ConeStore original = canvas.getObjects();
+        canvas.getBlue().add(original.get(0));
+        paint();
+
+        ConeStore loading = new HeapConeStore();
+        CSVCanvas.Contents previous = canvas.replaceObjects(loading);
+        Assert.assertSame(loading, canvas.getObjects());
+        Assert.assertTrue(canvas.getBlue().isEmpty());
+        paint();
+        Assert.assertEquals(0, canvas.getDrawnObjects());
+
+        canvas.restoreObjects(previous);
+        Assert.assertSame(original, canvas.getObjects());
+        Assert.assertEquals(1, canvas.getBlue().size());
+        paint();
+        Assert.assertEquals(1, canvas.getDrawnObjects());
+        Assert.assertEquals(Color.BLUE.getRGB(), image.getRGB(100, 100));
+    }
+}
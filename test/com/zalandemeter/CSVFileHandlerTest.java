@@ -5,6 +5,10 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 /**
  * A fájlokkal kapcsolatos műveleteket tesztelő osztály.
@@ -55,4 +59,25 @@ public class CSVFileHandlerTest {
         Assert.assertFalse(csvFileHandler.isEdited());
         Assert.assertEquals(file.getAbsolutePath(), csvFileHandler.getCurrentFile());
     }
-}
\ No newline at end of file
+
+    /**
+     * A követés kezdőpozícióját tesztelő metódus: követés nélküli betöltés után az újsor nélküli utolsó sor
+     * mögül, mentés után az új tartalom végéről folytatódik.
+     * @throws IOException ha a teszt fájl nem írható.
+     */
+    @Test
+    public void followOffset() throws IOException {
+        Path path = Files.createTempFile("follow", ".csv");
+        try {
+            Files.write(path, "1,2,1\n3,4,2".getBytes(StandardCharsets.US_ASCII));
+            csvFileHandler.setCache(null);
+            csvFileHandler.parseCSV(path.toString());
+            Assert.assertEquals(Files.size(path), csvFileHandler.getLastReadOffset());
+
+            csvFileHandler.saveCSV(path.toString());
+            Assert.assertEquals(Files.size(path), csvFileHandler.getLastReadOffset());
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
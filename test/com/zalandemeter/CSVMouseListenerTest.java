@@ -75,8 +75,8 @@ public class CSVMouseListenerTest {
         double deltaY = (eventPoint.getY() - gui.getCsvMouseListener().getReferenceY())/gui.getCanvas().getScale();
 
         gui.getCsvMouseListener().handleDragged(eventPoint,true);
-        Assert.assertEquals(deltaX/Item.getObjectDistance(),item.getX(),0);
-        Assert.assertEquals(deltaY/Item.getObjectDistance(),item.getY(),0);
+        Assert.assertEquals(CSVParser.toFixed(deltaX/Item.getObjectDistance()),item.getFixedX());
+        Assert.assertEquals(CSVParser.toFixed(deltaY/Item.getObjectDistance()),item.getFixedY());
         Assert.assertEquals(0,gui.getCanvas().getTranslateX(),0);
         Assert.assertEquals(0,gui.getCanvas().getTranslateY(),0);
         Assert.assertTrue(gui.getCanvas().getBlue().isEmpty());
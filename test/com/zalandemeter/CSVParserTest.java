@@ -0,0 +1,102 @@
+package com.zalandemeter;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * A bájt szintű CSV értelmezőt tesztelő osztály.
+ * @author zalandemeter
+ */
+public class CSVParserTest {
+
+    /**
+     * A beolvasott sorok, [x, y, szín] formátumban.
+     */
+    private ArrayList<long[]> rows;
+
+    /**
+     * A tesztelendő értelmező.
+     */
+    private CSVParser parser;
+
+    /**
+     * Minden teszt elején létrehozunk egy értelmezőt, ami a beolvasott sorokat egy listába gyűjti.
+     */
+    @Before
+    public void setUp() {
+        rows = new ArrayList<>();
+        parser = new CSVParser((x, y, color) -> rows.add(new long[]{x, y, color}));
+    }
+
+    /**
+     * Beolvassa a paraméterül kapott szöveget.
+     * @param text a beolvasandó szöveg.
+     */
+    private void parse(String text) {
+        parser.parse(ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII)), true);
+    }
+
+    /**
+     * A koordináták 8 tizedesjegyre kerekítését tesztelő metódus.
+     */
+    @Test
+    public void rounding() {
+        parse("2.876,-1.555,1\n1.899464964875,0.000000005,3\n1.0E-4,-0.000000005,2");
+        Assert.assertEquals(3, rows.size());
+        Assert.assertArrayEquals(new long[]{287600000L, -155500000L, 1}, rows.get(0));
+        Assert.assertArrayEquals(new long[]{189946496L, 1L, 3}, rows.get(1));
+        Assert.assertArrayEquals(new long[]{10000L, -1L, 2}, rows.get(2));
+        Assert.assertEquals(2.876, CSVParser.toDouble(rows.get(0)[0]), 0);
+    }
+
+    /**
+     * A hibás sorok kihagyását és sorszámuk feljegyzését tesztelő metódus.
+     */
+    @Test
+    public void malformedLines() {
+        parse("1,2,3\r\n\nabc,1,2\n1,2\n 4 , 5 , 1 \n");
+        Assert.assertEquals(2, rows.size());
+        Assert.assertEquals(2, parser.getErrorCount());
+        Assert.assertEquals(3, parser.getErrors().get(0).getLine());
+        Assert.assertEquals(4, parser.getErrors().get(1).getLine());
+        Assert.assertArrayEquals(new long[]{400000000L, 500000000L, 1}, rows.get(1));
+    }
+
+    /**
+     * A pufferhatáron átnyúló sorok kezelését tesztelő metódus.
+     */
+    @Test
+    public void partialLine() {
+        ByteBuffer buffer = ByteBuffer.wrap("1,2,3\n4,5".getBytes(StandardCharsets.US_ASCII));
+        parser.parse(buffer, false);
+        Assert.assertEquals(1, rows.size());
+        Assert.assertEquals(6, buffer.position());
+        parser.parse(buffer, true);
+        Assert.assertEquals(1, rows.size());
+        Assert.assertEquals(1, parser.getErrorCount());
+    }
+
+    /**
+     * A félig kiírt utolsó sor bemenetben hagyását tesztelő metódus: a folytatás az utolsó újsor utáni pozíció.
+     */
+    @Test
+    public void unterminatedLineLeft() {
+        parser.setParseUnterminated(false);
+        ByteBuffer buffer = ByteBuffer.wrap("1,2,3\n4,5".getBytes(StandardCharsets.US_ASCII));
+        parser.parse(buffer, true);
+        Assert.assertEquals(1, rows.size());
+        Assert.assertEquals(0, parser.getErrorCount());
+        Assert.assertEquals(6, buffer.position());
+        Assert.assertEquals(6, parser.getCompleteBytes());
+
+        parser.setParseUnterminated(true);
+        parser.parse(buffer, true);
+        Assert.assertEquals(9, parser.getBytesConsumed());
+        Assert.assertEquals(6, parser.getCompleteBytes());
+    }
+}
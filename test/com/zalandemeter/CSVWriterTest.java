@@ -0,0 +1,92 @@
+package com.zalandemeter;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * A CSV író osztályt tesztelő osztály.
+ * @author zalandemeter
+ */
+public class CSVWriterTest {
+
+    /**
+     * Ideiglenes, tömörített teszt fájl.
+     */
+    private File file;
+
+    /**
+     * Minden teszt elején létrehozunk egy ideiglenes fájlt.
+     * @throws IOException ha a fájl nem hozható létre.
+     */
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("map", ".csv" + CSVFileHandler.COMPRESSED_SUFFIX);
+    }
+
+    /**
+     * Minden teszt végén töröljük az ideiglenes fájlt.
+     */
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    /**
+     * A tömörítve kiírt és visszaolvasott objektumok egyezését tesztelő metódus.
+     * @throws IOException írási vagy olvasási hiba esetén.
+     */
+    @Test
+    public void compressedRoundTrip() throws IOException {
+        try (CSVWriter writer = CSVWriter.open(file.getAbsolutePath())) {
+            writer.writeRow(2.876, 1.555, 1);
+            writer.writeRow(-0.00000001, 12.0, 2);
+        }
+        Assert.assertEquals(31 + 2 * System.lineSeparator().length(), CSVFileHandler.contentSize(file.getAbsolutePath()));
+
+        ArrayList<Long> values = new ArrayList<>();
+        CSVParser parser = new CSVParser((x, y, color) -> {
+            values.add(x);
+            values.add(y);
+            values.add((long) color);
+        });
+        CSVFileHandler csvFileHandler = new CSVFileHandler(new CSVCanvas());
+        csvFileHandler.setCache(null);
+        csvFileHandler.read(file.getAbsolutePath(), parser);
+        Assert.assertEquals(0, parser.getErrorCount());
+        Assert.assertArrayEquals(new Long[]{287600000L, 155500000L, 1L, -1L, 1200000000L, 2L}, values.toArray());
+    }
+
+    /**
+     * A sorbarendezett mentést tesztelő metódus: a sorba nem rendezett, legfeljebb kételemű színcsoportok is
+     * bekerülnek a kimenetbe.
+     * @throws IOException írási vagy olvasási hiba esetén.
+     */
+    @Test
+    public void orderedKeepsSmallGroups() throws IOException {
+        CSVCanvas canvas = new CSVCanvas();
+        canvas.addObject(0, 0, 1);
+        canvas.addObject(CSVParser.SCALE, 0, 1);
+        for (int i = 0; i < 4; i++) {
+            canvas.addObject(i * CSVParser.SCALE, CSVParser.SCALE, 2);
+        }
+        canvas.addObject(0, 2 * CSVParser.SCALE, 0);
+        canvas.addObject(0, 3 * CSVParser.SCALE, 7);
+        canvas.initCurve();
+        Assert.assertNull(canvas.getIdxBlue());
+
+        CSVFileHandler csvFileHandler = new CSVFileHandler(canvas);
+        csvFileHandler.setCache(null);
+        Assert.assertTrue(csvFileHandler.saveOrderedCSV(file.getAbsolutePath()));
+        int[] colors = new int[8];
+        CSVParser parser = new CSVParser((x, y, color) -> colors[color]++);
+        csvFileHandler.read(file.getAbsolutePath(), parser);
+        Assert.assertEquals(8, parser.getRowCount());
+        Assert.assertArrayEquals(new int[]{1, 2, 4, 0, 0, 0, 0, 1}, colors);
+    }
+}
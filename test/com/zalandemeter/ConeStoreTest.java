@@ -0,0 +1,156 @@
+package com.zalandemeter;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Az objektumokat primitív tömbökben tároló listát tesztelő osztály.
+ * @author zalandemeter
+ */
+public class ConeStoreTest {
+
+    /**
+     * A tesztelt tároló.
+     */
+    private ConeStore store;
+
+    /**
+     * Minden teszt elején létrehozunk egy tárolót három objektummal.
+     */
+    @Before
+    public void setUp() {
+        store = new HeapConeStore();
+        for (int i = 0; i < 3; i++) {
+            store.add(i, -i, i + 1);
+        }
+    }
+
+    /**
+     * A hozzáadott objektum nézetté válását és a nézeten keresztüli módosítást tesztelő metódus.
+     */
+    @Test
+    public void views() {
+        Item item = new Item(7.5, 8.5, 4);
+        store.add(item);
+        Assert.assertSame(item, store.get(3));
+        Assert.assertSame(store.get(1), store.get(1));
+
+        item.setX(1.25);
+        item.setSelected(true);
+        Assert.assertEquals(1.25, store.getX(3), 0);
+        Assert.assertTrue(store.isSelected(3));
+
+        store.setColor(3, 2);
+        Assert.assertEquals(2, item.getColor());
+    }
+
+    /**
+     * A törlést tesztelő metódus. A mögötte lévő nézetek indexe és a kijelölések eggyel előrébb lépnek,
+     * a törölt nézet megtartja az értékeit.
+     */
+    @Test
+    public void remove() {
+        Item first = store.get(0);
+        Item last = store.get(2);
+        store.setSelected(2, true);
+
+        Assert.assertTrue(store.remove(first));
+        Assert.assertEquals(2, store.size());
+        Assert.assertEquals(2, store.getColor(0));
+        Assert.assertEquals(0, first.getX(), 0);
+        Assert.assertEquals(0, first.getY(), 0);
+        Assert.assertFalse(store.contains(first));
+
+        Assert.assertSame(last, store.get(1));
+        Assert.assertTrue(last.isSelected());
+        Assert.assertFalse(store.isSelected(0));
+        Assert.assertEquals(2, last.getX(), 0);
+
+        store.clear();
+        Assert.assertTrue(store.isEmpty());
+        Assert.assertEquals(3, last.getColor());
+    }
+
+    /**
+     * A heap-en kívüli tároló növekedését, törlését és felszabadítását tesztelő metódus.
+     */
+    @Test
+    public void offHeap() {
+        OffHeapConeStore offHeap = new OffHeapConeStore();
+        for (int i = 0; i < 100; i++) {
+            offHeap.add(i * 0.5, -i, i % 5);
+        }
+        Item item = offHeap.get(40);
+        offHeap.remove(10);
+        Assert.assertEquals(99, offHeap.size());
+        Assert.assertEquals(5.5, offHeap.getX(10), 0);
+        Assert.assertEquals(-99, offHeap.getY(98), 0);
+        Assert.assertEquals(1, offHeap.getColor(10));
+        Assert.assertSame(item, offHeap.get(39));
+
+        offHeap.release();
+        Assert.assertTrue(offHeap.isEmpty());
+        Assert.assertEquals(20, item.getX(), 0);
+        offHeap.add(1, 2, 3);
+        Assert.assertEquals(3, offHeap.get(0).getColor());
+    }
+
+    /**
+     * A fixpontos tárolást tesztelő metódus. A lebegőpontos értékek 8 tizedesjegyre kerekítve tárolódnak,
+     * a fixpontos értékek változás nélkül.
+     */
+    @Test
+    public void fixedPoint() {
+        store.addFixed(287600000L, -1L, 1);
+        Assert.assertEquals(2.876, store.getX(3), 0);
+        Assert.assertEquals(-0.00000001, store.get(3).getY(), 0);
+
+        store.setX(0, 0.1 + 0.2);
+        store.get(1).setY(1.000000005);
+        Assert.assertEquals(30000000L, store.getFixedX(0));
+        Assert.assertEquals(100000001L, store.getFixedY(1));
+        Assert.assertEquals(store.getFixedX(0), new Item(0.3, 0, 0).getFixedX());
+    }
+
+    /**
+     * A kapacitás határát tesztelő metódus: a növekedés a határnál megáll, és csak a határ túllépése okoz hibát.
+     */
+    @Test
+    public void capacityLimit() {
+        ConeStore limited = new HeapConeStore() {
+            @Override
+            protected int maxCapacity() {
+                return 30;
+            }
+        };
+        for (int i = 0; i < 30; i++) {
+            limited.addFixed(i, i, 1);
+        }
+        Assert.assertEquals(30, limited.capacity());
+        try {
+            limited.addFixed(0, 0, 1);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals(30, limited.size());
+        }
+    }
+
+    /**
+     * A változásszámlálót tesztelő metódus. A kijelölt objektum módosítása nem változtatja meg.
+     */
+    @Test
+    public void version() {
+        int version = store.getVersion();
+        store.setSelected(1, true);
+        Assert.assertNotEquals(version, store.getVersion());
+
+        version = store.getVersion();
+        store.get(1).setX(4.5);
+        store.setColor(1, 3);
+        Assert.assertEquals(version, store.getVersion());
+
+        store.setY(0, 2);
+        Assert.assertNotEquals(version, store.getVersion());
+    }
+}
@@ -0,0 +1,50 @@
+package com.zalandemeter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+
+/**
+ * Az ívek eltárolt útvonalát tesztelő osztály.
+ * @author zalandemeter
+ */
+public class CurvePathTest {
+
+    /**
+     * Az útvonal újraépítését tesztelő metódus: csak a sorrend, a kirajzolási távolság
+     * vagy egy összekötött objektum helyének változásakor készül új útvonal.
+     */
+    @Test
+    public void rebuildsOnlyOnChange() {
+        ConeStore store = new HeapConeStore();
+        store.add(1, 1, 1);
+        store.add(3, 1, 1);
+        store.add(3, 3, 1);
+        store.add(9, 9, 2);
+        ArrayList<Item> items = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            items.add(store.get(i));
+        }
+        int[] idx = {0, 1, 2};
+        CurvePath curve = new CurvePath();
+        Path2D path = curve.get(idx, items);
+        int distance = Item.getObjectDistance();
+        Assert.assertEquals(new Rectangle2D.Double(distance, distance, 2 * distance, 2 * distance), curve.getBounds());
+        Assert.assertSame(path, curve.get(idx, items));
+
+        store.setX(3, 10);
+        Assert.assertSame(path, curve.get(idx, items));
+
+        store.get(1).setX(4);
+        Path2D moved = curve.get(idx, items);
+        Assert.assertNotSame(path, moved);
+        Assert.assertEquals(4.0 * distance, curve.getBounds().getMaxX(), 1e-9);
+
+        Assert.assertNotSame(moved, curve.get(new int[]{2, 1, 0}, items));
+        Assert.assertNull(curve.get(null, items));
+        Assert.assertNull(curve.getBounds());
+    }
+}
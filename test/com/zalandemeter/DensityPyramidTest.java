@@ -0,0 +1,126 @@
+package com.zalandemeter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * A tároló sűrűségi összesítőjét tesztelő osztály.
+ * @author zalandemeter
+ */
+public class DensityPyramidTest {
+
+    /**
+     * Az összesítő cellái egy szint összes cellájára összegezve.
+     */
+    private static int[] sum(DensityPyramid density, int level) {
+        int[] sum = new int[DensityPyramid.COUNTERS];
+        density.forEachCell(level, -1000, -1000, 1000, 1000, (cellX, cellY, counts, offset) -> {
+            for (int c = 0; c < DensityPyramid.COUNTERS; c++) {
+                sum[c] += counts[offset + c];
+            }
+        });
+        return sum;
+    }
+
+    /**
+     * A cellák számlálóit tesztelő metódus negatív koordinátákkal és ismeretlen színkóddal.
+     */
+    @Test
+    public void counts() {
+        ConeStore store = new HeapConeStore();
+        store.add(0.005, 0.01, 1);
+        store.add(0.01, 0.01, 2);
+        store.add(-0.01, 0.01, 7);
+        DensityPyramid density = store.getDensity();
+
+        int[] cells = new int[1];
+        density.forEachCell(0, -0.001, 0, 0.001, 0.001, (cellX, cellY, counts, offset) -> {
+            cells[0]++;
+            Assert.assertEquals(cellX < 0 ? 1 : 2, counts[offset + DensityPyramid.TOTAL]);
+        });
+        Assert.assertEquals(2, cells[0]);
+        int[] top = sum(density, DensityPyramid.LEVELS - 1);
+        Assert.assertEquals(1, top[1]);
+        Assert.assertEquals(1, top[2]);
+        Assert.assertEquals(1, top[SpriteCache.COLORS]);
+        Assert.assertEquals(3, top[DensityPyramid.TOTAL]);
+        Assert.assertEquals(3, density.estimate(-1, -1, 1, 1));
+    }
+
+    /**
+     * A szintek késleltetett felépítését tesztelő metódus: csak a használt szint és nem a finomabbak készülnek el,
+     * a durvább szint a finomabb celláiból összevonva ugyanazt adja, mint a tárolóból számolva.
+     */
+    @Test
+    public void buildsLazily() {
+        ConeStore store = new HeapConeStore();
+        Random random = new Random(5);
+        for (int i = 0; i < 200; i++) {
+            store.add(random.nextDouble() * 100 - 50, random.nextDouble() * 100 - 50, i % 7);
+        }
+        DensityPyramid density = store.getDensity();
+        for (int level = 0; level < DensityPyramid.LEVELS; level++) {
+            Assert.assertFalse(density.isBuilt(level));
+        }
+        Assert.assertEquals(200, density.estimate(-60, -60, 60, 60));
+        int coarse = density.level(120.0 / 16);
+        Assert.assertTrue(density.isBuilt(coarse));
+        Assert.assertFalse(density.isBuilt(0));
+
+        sum(density, 2);
+        DensityPyramid direct = new DensityPyramid(store);
+        for (int level = 3; level < DensityPyramid.LEVELS; level++) {
+            Assert.assertArrayEquals(sum(direct, level), sum(density, level));
+        }
+        Assert.assertFalse(density.isBuilt(0));
+    }
+
+    /**
+     * Véletlenszerű módosítások után a tároló által frissített összesítőt egy újonnan felépítettel veti össze.
+     */
+    @Test
+    public void matchesRebuild() {
+        ConeStore store = new HeapConeStore();
+        Random random = new Random(11);
+        for (int i = 0; i < 1000; i++) {
+            store.add(random.nextDouble() * 40 - 20, random.nextDouble() * 40 - 20, i % 6);
+        }
+        DensityPyramid density = store.getDensity();
+        for (int level = 0; level < DensityPyramid.LEVELS; level += 3) {
+            sum(density, level);
+        }
+        for (int i = 0; i < 500; i++) {
+            int index = random.nextInt(store.size());
+            switch (i % 4) {
+                case 0: store.remove(index); break;
+                case 1: store.setColor(index, random.nextInt(6)); break;
+                case 2: store.add(random.nextDouble() * 40 - 20, random.nextDouble() * 40 - 20, 3); break;
+                default: store.setX(index, store.getX(index) + random.nextDouble() - 0.5);
+                    store.setY(index, store.getY(index) + random.nextDouble() - 0.5);
+            }
+        }
+        DensityPyramid rebuilt = new DensityPyramid(store);
+        for (int level = 0; level < DensityPyramid.LEVELS; level += 3) {
+            int[] expected = new int[DensityPyramid.COUNTERS * 4096];
+            int[] actual = new int[DensityPyramid.COUNTERS * 4096];
+            double width = density.getCellWidth(level);
+            collect(rebuilt, level, width, expected);
+            collect(density, level, width, actual);
+            Assert.assertArrayEquals(expected, actual);
+        }
+    }
+
+    /**
+     * Egy szint celláinak számlálóit a cellaindexek alapján egy tömbbe gyűjti.
+     */
+    private static void collect(DensityPyramid density, int level, double width, int[] target) {
+        density.forEachCell(level, -22, -22, 22, 22, (cellX, cellY, counts, offset) -> {
+            int cell = Math.floorMod(cellX * 64 + cellY, 4096);
+            for (int c = 0; c < DensityPyramid.COUNTERS; c++) {
+                target[cell * DensityPyramid.COUNTERS + c] += counts[offset + c];
+            }
+        });
+    }
+}
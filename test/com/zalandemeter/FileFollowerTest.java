@@ -0,0 +1,114 @@
+package com.zalandemeter;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bővülő fájlok követését tesztelő osztály.
+ * @author zalandemeter
+ */
+public class FileFollowerTest {
+
+    /**
+     * Ideiglenes teszt fájl.
+     */
+    private File file;
+
+    /**
+     * A tesztelt követő.
+     */
+    private FileFollower follower;
+
+    /**
+     * A követőtől kapott értesítések, újratöltés esetén üres puffer.
+     */
+    private LinkedBlockingQueue<RowBuffer> events;
+
+    /**
+     * Minden teszt elején létrehozunk egy két soros fájlt, és elindítjuk a követését a fájl végétől.
+     * @throws IOException ha a fájl nem hozható létre.
+     */
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("follow", ".csv");
+        append("2.876,1.555,1\n7.396,1.601,1\n");
+        events = new LinkedBlockingQueue<>();
+        follower = new FileFollower(file.getAbsolutePath(), file.length(), new FileFollower.Listener() {
+            @Override
+            public void appended(RowBuffer rows) {
+                events.add(rows);
+            }
+
+            @Override
+            public void reload() {
+                events.add(new RowBuffer(0));
+            }
+        });
+        follower.start();
+    }
+
+    /**
+     * Minden teszt végén leállítjuk a követést és töröljük az ideiglenes fájlt.
+     */
+    @After
+    public void tearDown() {
+        follower.close();
+        file.delete();
+    }
+
+    /**
+     * A hozzáfűzött teljes sorok beolvasását tesztelő metódus. A félig kiírt sort csak a befejezése után olvassa be.
+     * @throws Exception írási hiba, vagy megszakítás esetén.
+     */
+    @Test
+    public void appendedLines() throws Exception {
+        append("12.146,1.647,2\n3.0,4");
+        RowBuffer rows = events.poll(5, TimeUnit.SECONDS);
+        Assert.assertNotNull(rows);
+        ArrayList<long[]> values = new ArrayList<>();
+        rows.replay((x, y, color) -> values.add(new long[]{x, y, color}));
+        Assert.assertEquals(1, values.size());
+        Assert.assertArrayEquals(new long[]{1214600000L, 164700000L, 2}, values.get(0));
+
+        append(".5,1\n");
+        rows = events.poll(5, TimeUnit.SECONDS);
+        Assert.assertNotNull(rows);
+        values.clear();
+        rows.replay((x, y, color) -> values.add(new long[]{x, y, color}));
+        Assert.assertArrayEquals(new long[]{300000000L, 450000000L, 1}, values.get(0));
+    }
+
+    /**
+     * A fájl csonkolásakor küldött újratöltési kérést tesztelő metódus.
+     * @throws Exception írási hiba, vagy megszakítás esetén.
+     */
+    @Test
+    public void truncation() throws Exception {
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write("1.0,1.0,1\n");
+        }
+        RowBuffer rows = events.poll(5, TimeUnit.SECONDS);
+        Assert.assertNotNull(rows);
+        Assert.assertEquals(0, rows.size());
+    }
+
+    /**
+     * Szöveget fűz a teszt fájl végéhez.
+     * @param text a hozzáfűzendő szöveg.
+     * @throws IOException írási hiba esetén.
+     */
+    private void append(String text) throws IOException {
+        try (FileWriter writer = new FileWriter(file, true)) {
+            writer.write(text);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.zalandemeter;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Az újrarajzolásokat összevonó ütemezőt tesztelő osztály. Megjelenítő nélkül is futtatható.
+ * @author zalandemeter
+ */
+public class FrameSchedulerTest {
+
+    /**
+     * A vászon újrarajzolási kérései.
+     */
+    private List<Rectangle> repaints;
+
+    /**
+     * A láblécre kijelzett koordináták.
+     */
+    private List<Point2D> coords;
+
+    /**
+     * A tesztelt ütemező.
+     */
+    private FrameScheduler scheduler;
+
+    /**
+     * Minden teszt elején létrehozunk egy vásznat, ami az újrarajzolási kéréseket rögzíti.
+     */
+    @Before
+    public void setUp() {
+        repaints = new ArrayList<>();
+        coords = new ArrayList<>();
+        CSVCanvas canvas = new CSVCanvas() {
+            @Override
+            public void repaint(long tm, int x, int y, int width, int height) {
+                repaints.add(new Rectangle(x, y, width, height));
+            }
+        };
+        canvas.setSize(400, 300);
+        scheduler = new FrameScheduler(canvas, coords::add);
+    }
+
+    /**
+     * Megvárja, amíg az ütemező a függő képkockákat végrehajtja.
+     */
+    private void waitFrames() throws Exception {
+        Thread.sleep(3L * Math.max(FrameScheduler.getFrameInterval(), FrameScheduler.FOOTER_INTERVAL));
+        SwingUtilities.invokeAndWait(() -> { });
+    }
+
+    /**
+     * Az egy képkockán belüli kérések összevonását tesztelő metódus.
+     */
+    @Test
+    public void coalesces() throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            for (int i = 0; i < 100; i++) {
+                scheduler.requestRepaint(new Rectangle(10 + i, 20, 5, 5));
+                scheduler.requestCoords(new Point2D.Double(i, i));
+            }
+        });
+        waitFrames();
+        Assert.assertEquals(1, repaints.size());
+        Assert.assertEquals(new Rectangle(10, 20, 104, 5), repaints.get(0));
+        Assert.assertEquals(1, coords.size());
+        Assert.assertEquals(new Point2D.Double(99, 99), coords.get(0));
+
+        SwingUtilities.invokeAndWait(() -> {
+            scheduler.requestRepaint(new Rectangle(0, 0, 5, 5));
+            scheduler.requestRepaint();
+            scheduler.requestRepaint(new Rectangle(50, 50, 5, 5));
+        });
+        waitFrames();
+        Assert.assertEquals(2, repaints.size());
+        Assert.assertEquals(new Rectangle(0, 0, 400, 300), repaints.get(1));
+    }
+}
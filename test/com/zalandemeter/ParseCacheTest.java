@@ -0,0 +1,79 @@
+package com.zalandemeter;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A beolvasott fájlok gyorsítótárát tesztelő osztály.
+ * @author zalandemeter
+ */
+public class ParseCacheTest {
+
+    /**
+     * Ideiglenes gyorsítótár könyvtár.
+     */
+    private Path directory;
+
+    /**
+     * Ideiglenes CSV fájl.
+     */
+    private File file;
+
+    /**
+     * A tesztelt gyorsítótár.
+     */
+    private ParseCache cache;
+
+    /**
+     * Minden teszt elején létrehozunk egy ideiglenes könyvtárat és egy CSV fájlt.
+     * @throws IOException ha a fájlok nem hozhatók létre.
+     */
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("cache");
+        file = File.createTempFile("map", ".csv");
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write("2.876,1.555,1\n7.396,1.601,2\n");
+        }
+        cache = new ParseCache(directory, 1 << 20);
+    }
+
+    /**
+     * Minden teszt végén töröljük az ideiglenes fájlokat.
+     * @throws IOException törlési hiba esetén.
+     */
+    @After
+    public void tearDown() throws IOException {
+        cache.clear();
+        Files.deleteIfExists(directory);
+        file.delete();
+    }
+
+    /**
+     * A tárolt bejegyzés visszaolvasását és a fájl módosítása utáni érvénytelenítést tesztelő metódus.
+     * @throws IOException olvasási vagy írási hiba esetén.
+     */
+    @Test
+    public void storeAndInvalidate() throws IOException {
+        String key = cache.key(file.getAbsolutePath());
+        Assert.assertNull(cache.load(key));
+
+        cache.store(key, new TrackFormat.Track(new long[]{287600000L}, new long[]{155500000L}, new byte[]{1}));
+        TrackFormat.Track track = cache.load(key);
+        Assert.assertNotNull(track);
+        Assert.assertEquals(287600000L, track.getX()[0]);
+
+        try (FileWriter writer = new FileWriter(file, true)) {
+            writer.write("12.146,1.647,1\n");
+        }
+        Assert.assertNotEquals(key, cache.key(file.getAbsolutePath()));
+    }
+}
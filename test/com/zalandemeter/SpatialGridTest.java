@@ -0,0 +1,106 @@
+package com.zalandemeter;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * A tároló térbeli indexét tesztelő osztály.
+ * @author zalandemeter
+ */
+public class SpatialGridTest {
+
+    /**
+     * A tesztelt tároló.
+     */
+    private ConeStore store;
+
+    /**
+     * Minden teszt elején létrehozunk egy üres tárolót.
+     */
+    @Before
+    public void setUp() {
+        store = new HeapConeStore();
+    }
+
+    /**
+     * A legközelebbi objektum keresését tesztelő metódus, cellahatáron átnyúló sugárral.
+     */
+    @Test
+    public void nearest() {
+        store.add(0.9, 0.5, 1);
+        store.add(1.1, 0.5, 2);
+        store.add(-0.2, -0.2, 3);
+
+        Assert.assertEquals(1, store.nearest(1.04, 0.5, 0.25));
+        Assert.assertEquals(0, store.nearest(0.96, 0.5, 0.25));
+        Assert.assertEquals(2, store.nearest(0.0, 0.0, 0.3));
+        Assert.assertEquals(-1, store.nearest(0.0, 0.0, 0.25));
+        Assert.assertEquals(-1, store.nearest(1.0, 0.75, 0.25));
+    }
+
+    /**
+     * Az index frissítését tesztelő metódus hozzáadás, mozgatás és törlés után.
+     */
+    @Test
+    public void updates() {
+        store.add(0, 0, 1);
+        store.add(5, 5, 1);
+        Assert.assertEquals(0, store.nearest(0, 0, 0.25));
+
+        Item item = store.get(0);
+        item.setX(3.5);
+        item.setY(-2.25);
+        Assert.assertEquals(-1, store.nearest(0, 0, 0.25));
+        Assert.assertEquals(0, store.nearest(3.5, -2.25, 0.25));
+
+        store.add(10, 10, 2);
+        Assert.assertEquals(2, store.nearest(10.1, 10, 0.25));
+
+        store.remove(item);
+        Assert.assertEquals(-1, store.nearest(3.5, -2.25, 0.25));
+        Assert.assertEquals(0, store.nearest(5, 5, 0.25));
+        Assert.assertEquals(1, store.nearest(10, 10, 0.25));
+
+        store.clear();
+        store.add(1, 1, 1);
+        Assert.assertEquals(0, store.nearest(1, 1, 0.25));
+    }
+
+    /**
+     * Véletlenszerű módosítások után a keresés eredményét a teljes végigkereséssel veti össze.
+     */
+    @Test
+    public void matchesLinearScan() {
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            store.add(random.nextDouble() * 40 - 20, random.nextDouble() * 40 - 20, i % 5);
+        }
+        store.nearest(0, 0, 0.25);
+        for (int i = 0; i < 500; i++) {
+            int index = random.nextInt(store.size());
+            if (i % 5 == 0) {
+                store.remove(index);
+            } else {
+                store.setX(index, store.getX(index) + random.nextDouble() * 4 - 2);
+                store.setY(index, store.getY(index) + random.nextDouble() * 4 - 2);
+            }
+        }
+        for (int i = 0; i < 2000; i++) {
+            double x = random.nextDouble() * 44 - 22;
+            double y = random.nextDouble() * 44 - 22;
+            int expected = -1;
+            double best = 0.5 * 0.5;
+            for (int j = 0; j < store.size(); j++) {
+                double distance = (store.getX(j) - x) * (store.getX(j) - x) + (store.getY(j) - y) * (store.getY(j) - y);
+                if (distance < best) {
+                    best = distance;
+                    expected = j;
+                }
+            }
+            Assert.assertEquals(expected, store.nearest(x, y, 0.5));
+        }
+    }
+}
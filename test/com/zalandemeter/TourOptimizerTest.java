@@ -0,0 +1,98 @@
+package com.zalandemeter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * A lokális keresésen alapuló sorbarendezést tesztelő osztály.
+ * @author zalandemeter
+ */
+public class TourOptimizerTest {
+
+    /**
+     * A körúton tetszőleges sorrendben elhelyezett pontokat tesztelő metódus: az eredmény a pontok permutációja,
+     * a 0 indexű ponttal kezdődik, és a körön haladó, legrövidebb sorrend.
+     */
+    @Test
+    public void findsCircle() {
+        int n = 500;
+        Random random = new Random(3);
+        int[] perm = new int[n];
+        for (int i = 0; i < n; i++) {
+            perm[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = perm[i];
+            perm[i] = perm[j];
+            perm[j] = t;
+        }
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[perm[i]] = 10 * Math.cos(2 * Math.PI * i / n);
+            y[perm[i]] = 10 * Math.sin(2 * Math.PI * i / n);
+        }
+        TourOptimizer optimizer = new TourOptimizer(x, y);
+        int[] tour = optimizer.solve();
+
+        Assert.assertEquals(n, tour.length);
+        Assert.assertEquals(0, tour[0]);
+        boolean[] seen = new boolean[n];
+        for (int i: tour) {
+            Assert.assertFalse(seen[i]);
+            seen[i] = true;
+        }
+        Assert.assertEquals(2 * n * 10 * Math.sin(Math.PI / n), optimizer.length(tour), 1e-9);
+    }
+
+    /**
+     * Véletlen pontokat tesztelő metódus: a lokális keresés a legközelebbi szomszéd körútnál rövidebb,
+     * az eredmény pedig ugyanarra a bemenetre mindig azonos.
+     */
+    @Test
+    public void improvesRandomPoints() {
+        int n = 2000;
+        Random random = new Random(5);
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = random.nextDouble() * 100;
+            y[i] = random.nextDouble() * 100;
+        }
+        TourOptimizer optimizer = new TourOptimizer(x, y);
+        int[] tour = optimizer.solve();
+
+        boolean[] visited = new boolean[n];
+        int[] greedy = new int[n];
+        visited[0] = true;
+        for (int i = 1; i < n; i++) {
+            int last = greedy[i - 1];
+            int next = -1;
+            for (int j = 0; j < n; j++) {
+                if (!visited[j] && (next < 0 || Math.hypot(x[j] - x[last], y[j] - y[last])
+                        < Math.hypot(x[next] - x[last], y[next] - y[last]))) {
+                    next = j;
+                }
+            }
+            visited[next] = true;
+            greedy[i] = next;
+        }
+        Assert.assertTrue(optimizer.length(tour) < 0.9 * optimizer.length(greedy));
+        Assert.assertArrayEquals(tour, new TourOptimizer(x, y).solve());
+    }
+
+    /**
+     * A néhány pontból álló bemeneteket tesztelő metódus.
+     */
+    @Test
+    public void smallInputs() {
+        Assert.assertArrayEquals(new int[0], new TourOptimizer(new double[0], new double[0]).solve());
+        Assert.assertArrayEquals(new int[]{0, 1, 2}, new TourOptimizer(new double[]{0, 1, 2}, new double[]{0, 1, 0}).solve());
+        int[] tour = new TourOptimizer(new double[]{0, 1, 0, 1, 0.5}, new double[]{0, 1, 1, 0, 0}).solve();
+        Assert.assertEquals(0, tour[0]);
+        Assert.assertEquals(5, tour.length);
+    }
+}
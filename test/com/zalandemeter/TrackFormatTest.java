@@ -0,0 +1,71 @@
+package com.zalandemeter;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * A bináris pályaformátumot tesztelő osztály.
+ * @author zalandemeter
+ */
+public class TrackFormatTest {
+
+    /**
+     * Ideiglenes teszt fájl.
+     */
+    private File file;
+
+    /**
+     * Minden teszt elején létrehozunk egy ideiglenes fájlt.
+     * @throws IOException ha a fájl nem hozható létre.
+     */
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("track", "." + TrackFormat.EXTENSION);
+    }
+
+    /**
+     * Minden teszt végén töröljük az ideiglenes fájlt.
+     */
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    /**
+     * A kiírt és visszaolvasott pálya egyezését tesztelő metódus.
+     * @throws IOException írási vagy olvasási hiba esetén.
+     */
+    @Test
+    public void roundTrip() throws IOException {
+        long[] x = {287600000L, -1L, 0L};
+        long[] y = {155500000L, 2500000000L, -100L};
+        byte[] color = {1, 2, 4};
+        TrackFormat.write(file.getAbsolutePath(), new TrackFormat.Track(x, y, color));
+
+        TrackFormat.Track track = TrackFormat.read(file.getAbsolutePath());
+        Assert.assertEquals(3, track.size());
+        Assert.assertArrayEquals(x, track.getX());
+        Assert.assertArrayEquals(y, track.getY());
+        Assert.assertArrayEquals(color, track.getColor());
+        Assert.assertArrayEquals(new double[]{-0.00000001, -0.000001, 2.876, 25.0}, track.getBounds(), 0);
+        Assert.assertEquals(48 + 3 * 17, file.length());
+    }
+
+    /**
+     * Nem .trk fájl beolvasását tesztelő metódus.
+     * @throws IOException ha a teszt fájl nem írható.
+     */
+    @Test(expected = IOException.class)
+    public void notATrack() throws IOException {
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write("2.876,1.555,1\n7.396,1.601,1\n12.146,1.647,1\n2.876,1.555,1\n7.396,1.601,1\n");
+        }
+        TrackFormat.read(file.getAbsolutePath());
+    }
+}